@@ -1,10 +1,8 @@
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
-
 /**
  * @author Laszlo Bogacsi
  * @since 20/01/2018
  *
- * The percolation class implements the weighted union find algorithm-s API
+ * The percolation class uses a grid specialised union find (PercolationUF)
  * in order to find out if a given system percolates or not.
  * Initializes a N*N grid with all-blocked sites, then by opening a random site
  * one by one can check whether the system percolates.
@@ -13,27 +11,20 @@ import edu.princeton.cs.algs4.WeightedQuickUnionUF;
 public class Percolation {
     // size of a square grid
     private final int gridSize;
-    // array to track opened sites, values: false blocked, true open
-    private final boolean[] openSites;
+    // bit set to track opened sites, one bit per site: 0 blocked, 1 open
+    private final long[] openBits;
     // counter for how many sites are open
     private int numberOfOpenSites;
-    // the main quic union find object with 2 virtual nodes to check if the
-    // system percolates
-    private final WeightedQuickUnionUF wQUUF;
-    /* to work around the backwash problem, this wQUF object has only the top
-     * virtual node, used only to tell if a site is full
+    /* the union find object, its roots carry a top and a bottom flag instead
+     * of virtual nodes, so it tells both if a site is full (no backwash)
+     * and if the system percolates
      */
-    private final WeightedQuickUnionUF wQUUFNoBackwash;
-    // the id of the top virtual node ( last site +1 )
-    private final int vTopNode;
-    // the id of the bottom virtual node ( last site +2 )
-    private final int vBottomNode;
+    private final PercolationUF uf;
 
     /**
      * The constructor initializes the grid and the blocked sites,
      * creates an array to track open sites,
-     * creates two virtual nodes,
-     * instantiates the weighted quick union find object.
+     * instantiates the percolation union find object.
      * @exception  IllegalArgumentException on invalid grid-size (less than
      * or equal to 0
      * @param n size of the grid
@@ -44,19 +35,9 @@ public class Percolation {
                     "Grid size must be positive integer");
         }
         gridSize = n;
-        openSites = new boolean[gridSize * gridSize+2];
-        vTopNode = gridSize * gridSize ;
-        vBottomNode = gridSize * gridSize + 1;
-        wQUUF = new WeightedQuickUnionUF(gridSize * gridSize + 2);
-        wQUUFNoBackwash = new WeightedQuickUnionUF(gridSize * gridSize + 1);
-
+        openBits = new long[(int) (((long) gridSize * gridSize + 63) >>> 6)];
+        uf = new PercolationUF(gridSize * gridSize);
         numberOfOpenSites = 0;
-        for (int i = 0; i < n * n+2 ; i++) {
-            openSites[i] = false;
-        }
-        // mark the virtual top and bottom nodes open
-        openSites[vTopNode] = true;
-        openSites[vBottomNode] = true;
     }
 
     /**
@@ -68,47 +49,54 @@ public class Percolation {
      *            numbering starts at the top left corner
      */
     public void open(int row, int col) {
-        validate(row, col);
-        int currSite = xyTo1D(row, col);
-
-        // if site is not open, then open it
-        if (!isOpen(row, col)){
-            openSites[currSite] = true;
-            numberOfOpenSites ++;
-        } else {
-            return;
-        }
-        // upon first row, automatically connect to virtual top node
-        if (row == 1) {
-            connectNeighbour(wQUUF, currSite, vTopNode);
-            connectNeighbour(wQUUFNoBackwash, currSite, vTopNode);
+        openSite(xyTo1D(row, col));
+    }
 
+    /**
+     * Opens a batch of sites given by their coordinates, equivalent to
+     * calling open(rows[i], cols[i]) for every i in order.
+     * The whole batch is validated once up front, so an invalid coordinate
+     * leaves the grid untouched.
+     * @exception IllegalArgumentException on null or different length arrays
+     * or coordinates that fall outside the grid.
+     * @param rows row numbers of the sites (first row is 1 last is n)
+     * @param cols column numbers of the sites (first column is 1 last is n)
+     */
+    public void openAll(int[] rows, int[] cols) {
+        if (rows == null || cols == null || rows.length != cols.length) {
+            throw new IllegalArgumentException(
+                    "rows and cols must be arrays of the same length");
         }
-        // upon last row, automatically connect to virtual bottom node
-        if (row == gridSize) connectNeighbour(wQUUF, currSite, vBottomNode);
-        // Left neighbour
-        if ((col - 1 > 0) && isOpen(row, col -1 )) {
-            int leftSite = xyTo1D(row, col -1);
-            connectNeighbour(wQUUF, currSite, leftSite);
-            connectNeighbour(wQUUFNoBackwash, currSite, leftSite);
+        for (int i = 0; i < rows.length; i++) {
+            validate(rows[i], cols[i]);
         }
-        // Top neighbour
-        if ((row - 1 > 0) && isOpen(row-1, col )) {
-            int topSite = xyTo1D(row -1, col);
-            connectNeighbour(wQUUF, currSite, topSite);
-            connectNeighbour(wQUUFNoBackwash, currSite, topSite);
+        for (int i = 0; i < rows.length; i++) {
+            openSite((rows[i] - 1) * gridSize + cols[i] - 1);
         }
-        // Right neighbour
-        if ((col + 1  <= gridSize) && isOpen(row, col + 1 )) {
-            int rightSite = xyTo1D(row, col + 1);
-            connectNeighbour(wQUUF, currSite, rightSite);
-            connectNeighbour(wQUUFNoBackwash, currSite, rightSite);
+    }
+
+    /**
+     * Opens a batch of sites given by their ids, where the id of the site
+     * (row, col) is (row - 1) * n + (col - 1). Sites are opened in order.
+     * The whole batch is validated once up front, so an invalid id
+     * leaves the grid untouched.
+     * @exception IllegalArgumentException on a null array or ids
+     * that fall outside the grid.
+     * @param siteIds ids of the sites to open (0 to n * n - 1)
+     */
+    public void openSites(int[] siteIds) {
+        if (siteIds == null) {
+            throw new IllegalArgumentException("siteIds must not be null");
         }
-        // Bottom neighbour
-        if ((row + 1 <= gridSize) && isOpen(row + 1, col)) {
-            int bottomtSite = xyTo1D(row + 1, col);
-            connectNeighbour(wQUUF, currSite, bottomtSite);
-            connectNeighbour(wQUUFNoBackwash, currSite, bottomtSite);
+        int numberOfSites = gridSize * gridSize;
+        for (int site : siteIds) {
+            if (site < 0 || site >= numberOfSites) {
+                throw new IllegalArgumentException(
+                        "The index is out of the grid");
+            }
+        }
+        for (int site : siteIds) {
+            openSite(site);
         }
     }
 
@@ -124,13 +112,13 @@ public class Percolation {
      * @return true if open, false if blocked
      */
     public boolean isOpen(int row, int col) {
-        return openSites[xyTo1D(row, col)];
+        return isOpenSite(xyTo1D(row, col));
     }
 
     /**
      * The isFull method determines whether a site is full or not
      * based on the sites position in the grid.
-     * Full if connected to top virtual node.
+     * Full if its component is connected to the top row.
      * @param row row number of the site (first row is 1 last is n)
      *            numbering starts at the top left corner
      * @param col column nuber of the site (first column is 1 last is n)
@@ -139,7 +127,7 @@ public class Percolation {
      */
     public boolean isFull(int row, int col) {
         int site = xyTo1D(row, col);
-        return isOpen(row, col) && wQUUFNoBackwash.connected(site, vTopNode);
+        return isOpen(row, col) && uf.isConnectedToTop(site);
     }
 
     // number of open sites
@@ -159,7 +147,7 @@ public class Percolation {
      * @return true if percolates, false if not.
      */
     public boolean percolates() {
-        return wQUUF.connected(vTopNode, vBottomNode);
+        return uf.percolates();
     }
 
     /**
@@ -201,18 +189,56 @@ public class Percolation {
     }
 
     /**
-     * convenience method for re-usability. Calls the union method on the
-     * weightedQuickUnionFind object to connect two sites if they are not
-     * already connected.
-     * @param uf WeightedQuickUnionFind object
-     * @param currSite the id of the current site
-     * @param neighbourSite the id of the adjacent neighbour site
-     *                      (try to connect the current site to this)
+     * Opens an already validated site if it's not already open and merges
+     * it with its open neighbours in one pass. The union find skips
+     * neighbours that are already in the same component, so no separate
+     * connected check is needed.
+     * @param currSite the id of the site (array index)
      */
-    private void connectNeighbour(WeightedQuickUnionUF uf,
-                                  int currSite, int neighbourSite){
-        if (!uf.connected(currSite, neighbourSite)) {
-            uf.union(neighbourSite, currSite);
+    private void openSite(int currSite) {
+        // if site is already open, there is nothing to merge
+        if (isOpenSite(currSite)) return;
+        markOpen(currSite);
+        numberOfOpenSites++;
+
+        int col = currSite % gridSize;
+        // upon first row, mark the site as connected to the top
+        if (currSite < gridSize) uf.connectTop(currSite);
+        // upon last row, mark the site as connected to the bottom
+        if (currSite >= gridSize * (gridSize - 1)) uf.connectBottom(currSite);
+        // Left neighbour
+        if (col > 0 && isOpenSite(currSite - 1)) {
+            uf.union(currSite, currSite - 1);
         }
+        // Top neighbour
+        if (currSite >= gridSize && isOpenSite(currSite - gridSize)) {
+            uf.union(currSite, currSite - gridSize);
+        }
+        // Right neighbour
+        if (col + 1 < gridSize && isOpenSite(currSite + 1)) {
+            uf.union(currSite, currSite + 1);
+        }
+        // Bottom neighbour
+        if (currSite < gridSize * (gridSize - 1)
+                && isOpenSite(currSite + gridSize)) {
+            uf.union(currSite, currSite + gridSize);
+        }
+    }
+
+    /**
+     * Tests the bit of a site in the open site bit set.
+     * @param site the id of the site (array index)
+     * @return true if open, false if blocked
+     */
+    private boolean isOpenSite(int site) {
+        return (openBits[site >>> 6] & (1L << site)) != 0;
+    }
+
+    /**
+     * Sets the bit of a site in the open site bit set.
+     * @param site the id of the site (array index)
+     */
+    private void markOpen(int site) {
+        openBits[site >>> 6] |= 1L << site;
     }
 }
@@ -1,6 +1,15 @@
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author Laszlo Bogacsi
@@ -10,15 +19,28 @@ import edu.princeton.cs.algs4.StdStats;
  * an estimated percolation threshold (trialsm time on an n*n grid)
  */
 public class PercolationStats {
-    /* array of doubles to store the percolation results
-        the number of open sites when the system percolates.
+    /* online accumulator of the percolation results (the fraction of
+        open sites when the system percolates), constant memory in the
+        number of trials.
      */
-    private final double[] results;
+    private final RunningStats results = new RunningStats();
     private static final double CONFIDENCE_95 = 1.96;
+    // odd constant spreading the trial indices over the seed space
+    private static final long TRIAL_SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The way a single trial picks the sites to open.
+     * RANDOM_SITES draws uniformly random sites, including already open
+     * ones, and checks percolation after every draw.
+     * PERMUTATION shuffles all sites once (Fisher-Yates) and opens them in
+     * that order, so every draw opens a new site, stopping exactly at the
+     * first open that makes the system percolate.
+     */
+    public enum TrialMode { RANDOM_SITES, PERMUTATION }
 
     /**
      * The constructor performs the Percolation experiment 'trials' times on an
-     * n * n grid and pushes the result in to an array of doubles.
+     * n * n grid and adds each result to the running statistics.
      * @param n grid size, positive integer
      * @param trials number of time to run the experiment
      * @exception IllegalArgumentException on invald grid size or invalid trial
@@ -29,7 +51,6 @@ public class PercolationStats {
             throw new IllegalArgumentException(
                     "n and trials should be a positive integer");
         }
-        results = new double[trials];
         for (int i = 0; i < trials; i++) {
             Percolation percolation = new Percolation(n);
             while (!percolation.percolates()) {
@@ -37,24 +58,137 @@ public class PercolationStats {
                 int col = StdRandom.uniform(1, n + 1);
                 percolation.open(row, col);
             }
-            results[i] = percolation.numberOfOpenSites() / (n * n * 1.0);
+            results.add(percolation.numberOfOpenSites() / (n * n * 1.0));
+        }
+    }
+
+    /**
+     * The parallel constructor splits the 'trials' experiments into
+     * contiguous chunks and runs each chunk on its own worker thread.
+     * Every trial draws its sites from an independent random stream derived
+     * from the seed and the trial index, each chunk keeps its own running
+     * statistics and the chunks are merged in order, so a given seed and
+     * worker count produce bit-identical results.
+     * @param n grid size, positive integer
+     * @param trials number of time to run the experiment
+     * @param seed seed of the per trial random streams
+     * @param workers number of worker threads, positive integer
+     * @exception IllegalArgumentException on invald grid size, invalid trial
+     * number or invalid worker count
+     */
+    public PercolationStats(int n, int trials, long seed, int workers) {
+        this(n, trials, seed, workers, TrialMode.RANDOM_SITES);
+    }
+
+    /**
+     * The parallel constructor with a selectable trial mode, see
+     * PercolationStats(int, int, long, int) for how the trials are split.
+     * @param n grid size, positive integer
+     * @param trials number of time to run the experiment
+     * @param seed seed of the per trial random streams
+     * @param workers number of worker threads, positive integer
+     * @param mode the way a trial picks the sites to open
+     * @exception IllegalArgumentException on invald grid size, invalid trial
+     * number, invalid worker count or null mode
+     */
+    public PercolationStats(int n, int trials, long seed, int workers,
+                            TrialMode mode) {
+        if (n <= 0 || trials <= 0 || workers <= 0) {
+            throw new IllegalArgumentException(
+                    "n, trials and workers should be a positive integer");
+        }
+        if (mode == null) {
+            throw new IllegalArgumentException("mode must not be null");
+        }
+        int chunks = Math.min(workers, trials);
+        List<Callable<RunningStats>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            final int from = (int) ((long) trials * c / chunks);
+            final int to = (int) ((long) trials * (c + 1) / chunks);
+            tasks.add(() -> runTrials(n, seed, mode, from, to));
+        }
+        // a single worker runs in the calling thread, no pool needed
+        ExecutorService executor = chunks == 1 ? null
+                : Executors.newFixedThreadPool(chunks);
+        try {
+            for (RunningStats chunk : invokeAll(executor, tasks)) {
+                results.merge(chunk);
+            }
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The target precision constructor keeps running trials, in rounds of
+     * 'workers' parallel trials, until the half-width of the 95% confidence
+     * interval drops below epsilon or 'maxTrials' trials have been run.
+     * The results of a round are added in trial order, so a given seed and
+     * worker count produce bit-identical results.
+     * @param n grid size, positive integer
+     * @param epsilon requested half-width of the 95% confidence interval
+     * @param maxTrials maximum number of trials to run
+     * @param seed seed of the per trial random streams
+     * @param workers number of worker threads, positive integer
+     * @param mode the way a trial picks the sites to open
+     * @exception IllegalArgumentException on invald grid size, invalid
+     * epsilon, invalid trial budget, invalid worker count or null mode
+     */
+    public PercolationStats(int n, double epsilon, int maxTrials, long seed,
+                            int workers, TrialMode mode) {
+        if (n <= 0 || maxTrials <= 0 || workers <= 0) {
+            throw new IllegalArgumentException(
+                    "n, maxTrials and workers should be a positive integer");
+        }
+        if (!(epsilon > 0)) {
+            throw new IllegalArgumentException("epsilon should be positive");
+        }
+        if (mode == null) {
+            throw new IllegalArgumentException("mode must not be null");
+        }
+        ExecutorService executor = workers == 1 ? null
+                : Executors.newFixedThreadPool(workers);
+        try {
+            while (results.count() < maxTrials
+                    && (results.count() < 2 || halfWidth() >= epsilon)) {
+                int from = results.count();
+                int to = Math.min(maxTrials, from + workers);
+                List<Callable<RunningStats>> tasks = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    final int trial = i;
+                    tasks.add(() -> runTrials(n, seed, mode, trial, trial + 1));
+                }
+                for (RunningStats trial : invokeAll(executor, tasks)) {
+                    results.merge(trial);
+                }
+            }
+        } finally {
+            if (executor != null) executor.shutdownNow();
         }
     }
 
     /**
      * sample mean of percolation threshold
-     * @return double mean of the results array
+     * @return double mean of the results
      */
     public double mean() {
-        return StdStats.mean(results);
+        return results.mean();
     }
 
     /**
      * sample standard deviation of percolation threshold
-     * @return double standard deviation of the results array
+     * @return double standard deviation of the results
      */
     public double stddev() {
-        return StdStats.stddev(results);
+        return Math.sqrt(results.variance());
+    }
+
+    /**
+     * number of trials that have been run
+     * @return the number of results the statistics are based on
+     */
+    public int trials() {
+        return results.count();
     }
 
 
@@ -63,8 +197,7 @@ public class PercolationStats {
      * @return double of lower 95% confidence level
      */
     public double confidenceLo() {
-        return mean() - (CONFIDENCE_95 * stddev() / Math.sqrt(results.length));
-
+        return mean() - halfWidth();
     }
 
 
@@ -73,8 +206,126 @@ public class PercolationStats {
      * @return double of higher 95% confidence level
      */
     public double confidenceHi() {
-        return mean() + (CONFIDENCE_95 * stddev() / Math.sqrt(results.length));
+        return mean() + halfWidth();
+    }
+
+    /**
+     * half-width of the 95% confidence interval
+     * @return double distance of the confidence endpoints from the mean
+     */
+    private double halfWidth() {
+        return CONFIDENCE_95 * stddev() / Math.sqrt(results.count());
+    }
+
+    /**
+     * Runs the trials of one chunk.
+     * @param n grid size
+     * @param seed seed of the per trial random streams
+     * @param mode the way a trial picks the sites to open
+     * @param from index of the first trial (inclusive)
+     * @param to index of the last trial (exclusive)
+     * @return the running statistics of the chunk
+     */
+    private static RunningStats runTrials(int n, long seed, TrialMode mode,
+                                          int from, int to) {
+        RunningStats chunk = new RunningStats();
+        for (int i = from; i < to; i++) {
+            SplittableRandom random = trialRandom(seed, i);
+            chunk.add(mode == TrialMode.PERMUTATION
+                    ? runPermutationTrial(n, random)
+                    : runTrial(n, random));
+        }
+        return chunk;
+    }
+
+    /**
+     * Runs the tasks on the executor, or in the calling thread if there is
+     * no executor, and returns their results in task order.
+     * @param executor the executor, null to run in the calling thread
+     * @param tasks the tasks to run
+     * @return the results of the tasks in order
+     * @exception IllegalStateException if interrupted or a task fails
+     */
+    private static <T> List<T> invokeAll(ExecutorService executor,
+                                         List<Callable<T>> tasks) {
+        List<T> values = new ArrayList<>(tasks.size());
+        try {
+            if (executor == null) {
+                for (Callable<T> task : tasks) {
+                    values.add(task.call());
+                }
+            } else {
+                for (Future<T> future : executor.invokeAll(tasks)) {
+                    values.add(future.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Percolation trials interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Percolation trial failed", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Percolation trial failed", e);
+        }
+        return values;
+    }
+
+    /**
+     * Runs a single experiment on a fresh n * n grid, opening random sites
+     * drawn from the given stream until the system percolates.
+     * @param n grid size
+     * @param random the random stream of this trial
+     * @return the fraction of open sites when the system percolates
+     */
+    private static double runTrial(int n, SplittableRandom random) {
+        Percolation percolation = new Percolation(n);
+        while (!percolation.percolates()) {
+            int row = random.nextInt(n) + 1;
+            int col = random.nextInt(n) + 1;
+            percolation.open(row, col);
+        }
+        return percolation.numberOfOpenSites() / (n * n * 1.0);
+    }
+
+    /**
+     * Runs a single experiment on a fresh n * n grid, opening the sites in
+     * the order of a random permutation until the system percolates.
+     * Every step opens a new site, and since percolation is tracked by the
+     * union find roots the check after each open is constant time.
+     * @param n grid size
+     * @param random the random stream of this trial
+     * @return the fraction of open sites when the system percolates
+     */
+    private static double runPermutationTrial(int n, SplittableRandom random) {
+        int[] sites = new int[n * n];
+        for (int i = 0; i < sites.length; i++) {
+            sites[i] = i;
+        }
+        Percolation percolation = new Percolation(n);
+        // lazy Fisher-Yates: fix position i only when it is about to be opened
+        for (int i = 0; !percolation.percolates(); i++) {
+            int j = i + random.nextInt(sites.length - i);
+            int site = sites[j];
+            sites[j] = sites[i];
+            sites[i] = site;
+            percolation.open(site / n + 1, site % n + 1);
+        }
+        return percolation.numberOfOpenSites() / (n * n * 1.0);
+    }
 
+    /**
+     * Derives the independent random stream of a trial. The stream depends
+     * only on the seed and the trial index, not on which worker runs it.
+     * @param seed seed of the experiment
+     * @param trial index of the trial
+     * @return a random stream for the trial
+     */
+    private static SplittableRandom trialRandom(long seed, int trial) {
+        long trialSeed = new SplittableRandom(seed + trial * TRIAL_SEED_GAMMA)
+                .nextLong();
+        return new SplittableRandom(trialSeed);
     }
 
     /**
@@ -83,14 +334,92 @@ public class PercolationStats {
      * confidence levels of the percolation threshold to the standard output.
      * @param args first argument is the gridsize,
      *             the second argument is the number of times
-     *             to repeat the experiment.
+     *             to repeat the experiment,
+     *             the optional third argument is the seed and
+     *             the optional fourth argument is the number of workers
+     *             (defaults to the number of available processors),
+     *             the optional fifth argument is the trial mode
+     *             (random_sites or permutation, defaults to random_sites),
+     *             the optional sixth argument is a target half-width of the
+     *             confidence interval, with it the second argument becomes
+     *             the maximum number of trials.
      */
     public static void main(String[] args) {
         int n = Integer.parseInt(args[0]);
         int trials = Integer.parseInt(args[1]);
-        PercolationStats percolationStats = new PercolationStats(n, trials);
+        PercolationStats percolationStats;
+        Stopwatch stopwatch = new Stopwatch();
+        if (args.length > 2) {
+            long seed = Long.parseLong(args[2]);
+            int workers = args.length > 3 ? Integer.parseInt(args[3])
+                    : Runtime.getRuntime().availableProcessors();
+            TrialMode mode = args.length > 4
+                    ? TrialMode.valueOf(args[4].toUpperCase())
+                    : TrialMode.RANDOM_SITES;
+            if (args.length > 5) {
+                double epsilon = Double.parseDouble(args[5]);
+                percolationStats = new PercolationStats(n, epsilon, trials,
+                        seed, workers, mode);
+            } else {
+                percolationStats = new PercolationStats(n, trials, seed,
+                        workers, mode);
+            }
+        } else {
+            percolationStats = new PercolationStats(n, trials);
+        }
+        double millisPerTrial = stopwatch.elapsedTime() * 1000
+                / percolationStats.trials();
         StdOut.printf("mean:                    = %s\n", percolationStats.mean());
         StdOut.printf("stddev:                  = %s\n", percolationStats.stddev());
-        StdOut.printf("95%% confidence interval: = [%s, %s]", percolationStats.confidenceLo(), percolationStats.confidenceHi());
+        StdOut.printf("95%% confidence interval: = [%s, %s]\n", percolationStats.confidenceLo(), percolationStats.confidenceHi());
+        StdOut.printf("trials:                  = %s\n", percolationStats.trials());
+        StdOut.printf("time per trial (ms):     = %s\n", millisPerTrial);
+    }
+
+    /**
+     * Welford's online mean and variance, so the statistics need constant
+     * memory however many trials are run. Two accumulators can be merged
+     * (Chan et al.), which lets every worker keep its own.
+     */
+    private static final class RunningStats {
+        private int count;
+        private double mean;
+        // sum of squared differences from the mean
+        private double m2;
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        void merge(RunningStats other) {
+            if (other.count == 0) return;
+            if (count == 0) {
+                count = other.count;
+                mean = other.mean;
+                m2 = other.m2;
+                return;
+            }
+            int total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+            count = total;
+        }
+
+        int count() {
+            return count;
+        }
+
+        double mean() {
+            return mean;
+        }
+
+        // sample variance, NaN for a single result like StdStats.var
+        double variance() {
+            return m2 / (count - 1);
+        }
     }
 }
@@ -0,0 +1,112 @@
+/**
+ * The PercolationUF class is a union find specialised for percolation grids.
+ * Instead of virtual top and bottom nodes it keeps a "connected to top" and
+ * a "connected to bottom" flag on every root, so a single structure can tell
+ * whether a site is full (without backwash) and whether the system
+ * percolates.
+ * The parent links live in a flat int array compressed by path halving,
+ * the rank and the two flags of a site are packed into one byte.
+ */
+class PercolationUF {
+    // low bits of a state byte hold the rank of the tree
+    private static final int RANK_MASK = 0x1F;
+    // the root's component contains a site of the top row
+    private static final int TOP = 0x20;
+    // the root's component contains a site of the bottom row
+    private static final int BOTTOM = 0x40;
+
+    // parent[i] = parent of site i
+    private final int[] parent;
+    // state[i] = rank and top/bottom flags of site i (only valid on roots)
+    private final byte[] state;
+    // true once a component touches both the top and the bottom row
+    private boolean percolates;
+
+    /**
+     * Initializes an empty union find structure with n sites,
+     * each site in its own component.
+     * @param n number of sites
+     */
+    PercolationUF(int n) {
+        parent = new int[n];
+        state = new byte[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * Returns the root of the component containing site p,
+     * halving the path on the way up.
+     * @param p the site
+     * @return the root of the component
+     */
+    int find(int p) {
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    /**
+     * Marks the component of site p as connected to the top row.
+     * @param p a site of the top row
+     */
+    void connectTop(int p) {
+        mark(find(p), TOP);
+    }
+
+    /**
+     * Marks the component of site p as connected to the bottom row.
+     * @param p a site of the bottom row
+     */
+    void connectBottom(int p) {
+        mark(find(p), BOTTOM);
+    }
+
+    /**
+     * Merges the components of site p and site q (union by rank),
+     * the new root inherits the flags of both roots.
+     * @param p a site
+     * @param q a site
+     */
+    void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+        int rankP = state[rootP] & RANK_MASK;
+        int rankQ = state[rootQ] & RANK_MASK;
+        int flags = (state[rootP] | state[rootQ]) & (TOP | BOTTOM);
+        if (rankP < rankQ) {
+            parent[rootP] = rootQ;
+            mark(rootQ, flags);
+        } else {
+            parent[rootQ] = rootP;
+            if (rankP == rankQ) state[rootP]++;
+            mark(rootP, flags);
+        }
+    }
+
+    /**
+     * Determines whether site p is connected to the top row.
+     * @param p the site
+     * @return true if the component of p contains a top row site
+     */
+    boolean isConnectedToTop(int p) {
+        return (state[find(p)] & TOP) != 0;
+    }
+
+    /**
+     * Determines whether any component touches both the top and bottom row.
+     * @return true if the system percolates
+     */
+    boolean percolates() {
+        return percolates;
+    }
+
+    private void mark(int root, int flags) {
+        state[root] |= flags;
+        if ((state[root] & (TOP | BOTTOM)) == (TOP | BOTTOM)) percolates = true;
+    }
+}
@@ -0,0 +1,45 @@
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.StdOut;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.function.Supplier;
+
+/**
+ * KdTreeFootprint prints the heap KdTree, grown by insert and bulk loaded, ArrayKdTree and PointSET retain per point
+ * for every point file given on the command line, e.g. java -cp benchmarks/target/benchmarks.jar KdTreeFootprint week5/input200K.txt
+ * The size is exact: JOL walks the object graph of the built set and sums the object sizes of this JVM's layout, less
+ * the Point2D objects, which the caller owns and every set shares. Add -v for the sizes per class.
+ */
+public class KdTreeFootprint {
+    public static void main(String[] args) {
+        boolean verbose = false;
+        for (String arg : args) {
+            if (arg.equals("-v")) {
+                verbose = true;
+                continue;
+            }
+            Point2D[] points = KdTreeTarget.readPoints(arg);
+            footprint("KdTree", arg, points, () -> {
+                KdTree tree = new KdTree();
+                for (Point2D p : points) tree.insert(p);
+                return tree;
+            }, verbose);
+            footprint("KdTree,bulk", arg, points, () -> new KdTree(points), verbose);
+            footprint("ArrayKdTree", arg, points, () -> new ArrayKdTree(points), verbose);
+            footprint("PointSET", arg, points, () -> {
+                PointSET set = new PointSET();
+                for (Point2D p : points) set.insert(p);
+                return set;
+            }, verbose);
+        }
+    }
+
+    private static void footprint(String name, String filename, Point2D[] points, Supplier<Object> build,
+                                  boolean verbose) {
+        GraphLayout layout = GraphLayout.parseInstance(build.get());
+        // a single walk, subtracting a second layout matches objects by address and misses those the GC moved
+        long size = layout.totalSize() - layout.getClassSizes().count(Point2D.class);
+        StdOut.printf("%-12s %-24s %12d bytes %8.1f B/point%n", name, filename, size, (double) size / points.length);
+        if (verbose) StdOut.println(layout.toFootprint());
+    }
+}
@@ -0,0 +1,166 @@
+import benchmarks.KdTreeBenchmark;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * KdTreeTarget holds the trees and the random (fixed seed) queries measured by KdTreeBenchmark, the query methods go
+ * through the queries in turn.
+ */
+public class KdTreeTarget implements KdTreeBenchmark.Target {
+    private static final int QUERIES = 1000;
+    private static final double RECT_SIZE = 0.01;
+    private static final int NEAREST_K = 10;
+    private static final double RADIUS = 0.01;
+
+    private Point2D[] points;
+    private KdTree kdTree;
+    private KdTree bulkTree;
+    private ArrayKdTree arrayTree;
+    private PointSET pointSet;
+    private RectHV[] rects;
+    private Point2D[] queries;
+    // index of the next query
+    private int query;
+    private Consumer<Point2D> sink;
+
+    @Override
+    public void setUp(String filename, Consumer<Point2D> sink) {
+        points = readPoints(filename);
+        kdTree = kdTree(points);
+        bulkTree = new KdTree(points);
+        arrayTree = new ArrayKdTree(points);
+        pointSet = pointSet(points);
+        rects = new RectHV[QUERIES];
+        queries = new Point2D[QUERIES];
+        SplittableRandom random = new SplittableRandom(QUERIES);
+        for (int q = 0; q < QUERIES; q++) {
+            double x = random.nextDouble(1 - RECT_SIZE);
+            double y = random.nextDouble(1 - RECT_SIZE);
+            rects[q] = new RectHV(x, y, x + RECT_SIZE, y + RECT_SIZE);
+            queries[q] = new Point2D(random.nextDouble(), random.nextDouble());
+        }
+        this.sink = sink;
+    }
+
+    @Override
+    public int insert() {
+        return kdTree(points).size();
+    }
+
+    @Override
+    public int bulkLoad() {
+        return new KdTree(points, false).size();
+    }
+
+    @Override
+    public int bulkLoadParallel() {
+        return new KdTree(points, true).size();
+    }
+
+    @Override
+    public int arrayInsert() {
+        ArrayKdTree tree = new ArrayKdTree();
+        for (Point2D p : points) tree.insert(p);
+        return tree.size();
+    }
+
+    @Override
+    public int arrayBulkLoad() {
+        return new ArrayKdTree(points).size();
+    }
+
+    @Override
+    public int pointSetInsert() {
+        return pointSet(points).size();
+    }
+
+    @Override
+    public Iterable<Point2D> range() {
+        return kdTree.range(rects[next()]);
+    }
+
+    @Override
+    public void rangeSink() {
+        kdTree.range(rects[next()], sink);
+    }
+
+    @Override
+    public void rangeBulk() {
+        bulkTree.range(rects[next()], sink);
+    }
+
+    @Override
+    public void arrayRange() {
+        arrayTree.range(rects[next()], sink);
+    }
+
+    @Override
+    public Iterable<Point2D> pointSetRange() {
+        return pointSet.range(rects[next()]);
+    }
+
+    @Override
+    public Point2D nearest() {
+        return kdTree.nearest(queries[next()]);
+    }
+
+    @Override
+    public Point2D nearestBulk() {
+        return bulkTree.nearest(queries[next()]);
+    }
+
+    @Override
+    public Point2D arrayNearest() {
+        return arrayTree.nearest(queries[next()]);
+    }
+
+    @Override
+    public Point2D pointSetNearest() {
+        return pointSet.nearest(queries[next()]);
+    }
+
+    @Override
+    public Iterable<Point2D> nearestK() {
+        return bulkTree.nearest(queries[next()], NEAREST_K);
+    }
+
+    @Override
+    public Iterable<Point2D> withinRadius() {
+        return bulkTree.withinRadius(queries[next()], RADIUS);
+    }
+
+    private int next() {
+        int q = query;
+        query = q + 1 == QUERIES ? 0 : q + 1;
+        return q;
+    }
+
+    static Point2D[] readPoints(String filename) {
+        In in = new In(filename);
+        List<Point2D> points = new ArrayList<>();
+        while (!in.isEmpty()) {
+            double x = in.readDouble();
+            double y = in.readDouble();
+            points.add(new Point2D(x, y));
+        }
+        return points.toArray(new Point2D[0]);
+    }
+
+    private static KdTree kdTree(Point2D[] points) {
+        KdTree tree = new KdTree();
+        for (Point2D p : points) tree.insert(p);
+        return tree;
+    }
+
+    private static PointSET pointSet(Point2D[] points) {
+        PointSET set = new PointSET();
+        for (Point2D p : points) set.insert(p);
+        return set;
+    }
+}
@@ -0,0 +1,22 @@
+import benchmarks.PercolationStatsBenchmark;
+
+/**
+ * The PercolationStatsTarget class runs the trials measured by
+ * PercolationStatsBenchmark with a single worker and a fixed seed.
+ */
+public class PercolationStatsTarget implements PercolationStatsBenchmark.Target {
+    private int n;
+    private PercolationStats.TrialMode mode;
+
+    @Override
+    public void setUp(int n, String mode) {
+        this.n = n;
+        this.mode = PercolationStats.TrialMode.valueOf(mode);
+    }
+
+    @Override
+    public double trials(int trials) {
+        return new PercolationStats(n, trials, PercolationTarget.SEED, 1,
+                mode).mean();
+    }
+}
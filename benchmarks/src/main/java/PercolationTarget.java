@@ -0,0 +1,74 @@
+import benchmarks.PercolationBenchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * The PercolationTarget class runs the operations measured by
+ * PercolationBenchmark on n-by-n grids whose sites are opened in a fixed
+ * random order.
+ */
+public class PercolationTarget implements PercolationBenchmark.Target {
+    static final long SEED = 20180120L;
+
+    private int n;
+    private int[] sites;
+    private int[] rows;
+    private int[] cols;
+    private Percolation halfOpen;
+    // next site queried on the half open grid
+    private int query;
+
+    @Override
+    public void setUp(int n) {
+        this.n = n;
+        sites = permutation(n * n, new SplittableRandom(SEED));
+        rows = new int[sites.length];
+        cols = new int[sites.length];
+        for (int i = 0; i < sites.length; i++) {
+            rows[i] = sites[i] / n + 1;
+            cols[i] = sites[i] % n + 1;
+        }
+        halfOpen = new Percolation(n);
+        for (int i = 0; i < sites.length / 2; i++) {
+            halfOpen.open(rows[i], cols[i]);
+        }
+    }
+
+    @Override
+    public int open() {
+        Percolation percolation = new Percolation(n);
+        for (int i = 0; i < rows.length; i++) {
+            percolation.open(rows[i], cols[i]);
+        }
+        return percolation.numberOfOpenSites();
+    }
+
+    @Override
+    public int openSites() {
+        Percolation percolation = new Percolation(n);
+        percolation.openSites(sites);
+        return percolation.numberOfOpenSites();
+    }
+
+    @Override
+    public boolean percolates() {
+        return halfOpen.percolates();
+    }
+
+    @Override
+    public boolean isFull() {
+        int i = query;
+        query = i + 1 == sites.length ? 0 : i + 1;
+        return halfOpen.isFull(rows[i], cols[i]);
+    }
+
+    static int[] permutation(int length, SplittableRandom random) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            int j = random.nextInt(i + 1);
+            values[i] = values[j];
+            values[j] = i;
+        }
+        return values;
+    }
+}
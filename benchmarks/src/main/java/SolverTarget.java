@@ -0,0 +1,35 @@
+import benchmarks.SolverBenchmark;
+import edu.princeton.cs.algs4.In;
+
+/**
+ * SolverTarget solves the board measured by SolverBenchmark with one of the Solver's algorithms.
+ */
+public class SolverTarget implements SolverBenchmark.Target {
+    private Board initial;
+    private Solver.Algorithm algorithm;
+    private int workers;
+
+    @Override
+    public void setUp(String filename, String algorithm, int workers) {
+        initial = readBoard(filename);
+        this.algorithm = Solver.Algorithm.valueOf(algorithm);
+        this.workers = workers;
+    }
+
+    @Override
+    public int solve() {
+        return new Solver(initial, algorithm, Heuristic.MANHATTAN, Long.MAX_VALUE, workers).moves();
+    }
+
+    private static Board readBoard(String filename) {
+        In in = new In(filename);
+        int n = in.readInt();
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                tiles[i][j] = in.readInt();
+            }
+        }
+        return new Board(tiles);
+    }
+}
@@ -0,0 +1,24 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BenchmarkMain is the main class of benchmarks.jar: it runs the JMH command line with the results written as JSON,
+ * to jmh-result.json unless -rff names another file, so runs can be compared across changes. A -rf given on the
+ * command line takes precedence.
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "-rf");
+            options.add(1, "json");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,174 @@
+package benchmarks;
+
+import edu.princeton.cs.algs4.Point2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * KdTreeBenchmark compares KdTree, grown by insert and bulk loaded, and the node free ArrayKdTree against the brute
+ * force PointSET on building (time per tree), range and nearest, and KdTree alone on the k nearest points and the
+ * points within a radius, e.g. java -jar benchmarks/target/benchmarks.jar -prof gc KdTreeBenchmark -p file=input200K.txt
+ * Point files are read from week5, or from the directory given with -Dpoints=dir. Queries are random (fixed seed)
+ * small rectangles and points in the unit square, one per call. The nearest queries are also sampled one by one for
+ * their latency percentiles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class KdTreeBenchmark {
+    // implemented by KdTreeTarget, every query method answers the next of its fixed queries
+    public interface Target {
+        // reads the points, builds the trees and the queries; the sink takes the points of rangeSink and the like
+        void setUp(String filename, Consumer<Point2D> sink);
+
+        int insert();
+
+        int bulkLoad();
+
+        int bulkLoadParallel();
+
+        int arrayInsert();
+
+        int arrayBulkLoad();
+
+        int pointSetInsert();
+
+        Iterable<Point2D> range();
+
+        void rangeSink();
+
+        void rangeBulk();
+
+        void arrayRange();
+
+        Iterable<Point2D> pointSetRange();
+
+        Point2D nearest();
+
+        Point2D nearestBulk();
+
+        Point2D arrayNearest();
+
+        Point2D pointSetNearest();
+
+        Iterable<Point2D> nearestK();
+
+        Iterable<Point2D> withinRadius();
+    }
+
+    @Param({"input10K.txt", "input200K.txt"})
+    private String file;
+
+    private Target target;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        target = Targets.load("KdTreeTarget", Target.class);
+        target.setUp(new File(System.getProperty("points", "week5"), file).getPath(), blackhole::consume);
+    }
+
+    @Benchmark
+    public int insert() {
+        return target.insert();
+    }
+
+    @Benchmark
+    public int bulkLoad() {
+        return target.bulkLoad();
+    }
+
+    @Benchmark
+    public int bulkLoadParallel() {
+        return target.bulkLoadParallel();
+    }
+
+    @Benchmark
+    public int arrayInsert() {
+        return target.arrayInsert();
+    }
+
+    @Benchmark
+    public int arrayBulkLoad() {
+        return target.arrayBulkLoad();
+    }
+
+    @Benchmark
+    public int pointSetInsert() {
+        return target.pointSetInsert();
+    }
+
+    @Benchmark
+    public void range(Blackhole blackhole) {
+        for (Point2D p : target.range()) blackhole.consume(p);
+    }
+
+    @Benchmark
+    public void rangeSink() {
+        target.rangeSink();
+    }
+
+    @Benchmark
+    public void rangeBulk() {
+        target.rangeBulk();
+    }
+
+    @Benchmark
+    public void arrayRange() {
+        target.arrayRange();
+    }
+
+    @Benchmark
+    public void pointSetRange(Blackhole blackhole) {
+        for (Point2D p : target.pointSetRange()) blackhole.consume(p);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    public Point2D nearest() {
+        return target.nearest();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    public Point2D nearestBulk() {
+        return target.nearestBulk();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    public Point2D arrayNearest() {
+        return target.arrayNearest();
+    }
+
+    @Benchmark
+    public Point2D pointSetNearest() {
+        return target.pointSetNearest();
+    }
+
+    @Benchmark
+    public void nearestK(Blackhole blackhole) {
+        for (Point2D p : target.nearestK()) blackhole.consume(p);
+    }
+
+    @Benchmark
+    public void withinRadius(Blackhole blackhole) {
+        for (Point2D p : target.withinRadius()) blackhole.consume(p);
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PercolationBenchmark class measures the hot paths of Percolation:
+ * opening every site of an n-by-n grid one by one and in a batch (time
+ * per grid), and single percolates and isFull queries on a half open grid.
+ * Sites are opened in a fixed random order. Run with -prof gc for the
+ * bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PercolationBenchmark {
+    /**
+     * The Target interface is implemented by PercolationTarget, which
+     * holds the grids and the order of the sites.
+     */
+    public interface Target {
+        void setUp(int n);
+
+        int open();
+
+        int openSites();
+
+        boolean percolates();
+
+        boolean isFull();
+    }
+
+    @Param({"256", "1024"})
+    private int n;
+
+    private Target target;
+
+    @Setup
+    public void setUp() {
+        target = Targets.load("PercolationTarget", Target.class);
+        target.setUp(n);
+    }
+
+    @Benchmark
+    public int open() {
+        return target.open();
+    }
+
+    @Benchmark
+    public int openSites() {
+        return target.openSites();
+    }
+
+    @Benchmark
+    public boolean percolates() {
+        return target.percolates();
+    }
+
+    @Benchmark
+    public boolean isFull() {
+        return target.isFull();
+    }
+}
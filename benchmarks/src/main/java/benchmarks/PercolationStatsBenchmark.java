@@ -0,0 +1,62 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PercolationStatsBenchmark class measures whole percolation trials
+ * of PercolationStats at several grid sizes and in both trial modes, run
+ * by a single worker so that -prof gc attributes the allocations to the
+ * measured thread. Times are per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PercolationStatsBenchmark {
+    private static final int TRIALS = 10;
+
+    /**
+     * The Target interface is implemented by PercolationStatsTarget, mode
+     * is the name of a PercolationStats.TrialMode.
+     */
+    public interface Target {
+        void setUp(int n, String mode);
+
+        double trials(int trials);
+    }
+
+    @Param({"64", "256", "1024"})
+    private int n;
+
+    @Param({"RANDOM_SITES", "PERMUTATION"})
+    private String mode;
+
+    private Target target;
+
+    @Setup
+    public void setUp() {
+        target = Targets.load("PercolationStatsTarget", Target.class);
+        target.setUp(n, mode);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRIALS)
+    public double trial() {
+        return target.trials(TRIALS);
+    }
+}
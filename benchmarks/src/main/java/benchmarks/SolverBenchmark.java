@@ -0,0 +1,77 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SolverBenchmark measures how long the Solver takes to solve a board with every search algorithm, e.g.
+ * java -jar benchmarks/target/benchmarks.jar -prof gc SolverBenchmark -p board=puzzle4x4-30.txt -p algorithm=A_STAR,IDA_STAR
+ * The boards are the puzzle4x4 set up to 50 moves and the unsolvable one, others such as the 3x3 boards can be
+ * given instead with -p board=puzzle3x3-31.txt,puzzle42.txt. They are read from week4/boards, or from the directory
+ * given with -Dboards=dir. -prof gc only sees the allocations of the benchmark thread, not those of the parallel
+ * search's workers. The expanded nodes of a board are printed by PuzzleChecker -batch -metrics.
+ * The speedup of the parallel search is the A_STAR time of a board over its PARALLEL_A_STAR time at each worker count:
+ * java -jar benchmarks/target/benchmarks.jar -rff astar.json SolverBenchmark -p algorithm=A_STAR
+ * java -jar benchmarks/target/benchmarks.jar -rff parallel.json SolverBenchmark -p algorithm=PARALLEL_A_STAR -p workers=1,2,4
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class SolverBenchmark {
+    // implemented by SolverTarget, algorithm is the name of a Solver.Algorithm
+    public interface Target {
+        void setUp(String filename, String algorithm, int workers);
+
+        int solve();
+    }
+
+    @Param({
+            "puzzle4x4-00.txt", "puzzle4x4-01.txt", "puzzle4x4-02.txt", "puzzle4x4-03.txt", "puzzle4x4-04.txt",
+            "puzzle4x4-05.txt", "puzzle4x4-06.txt", "puzzle4x4-07.txt", "puzzle4x4-08.txt", "puzzle4x4-09.txt",
+            "puzzle4x4-10.txt", "puzzle4x4-11.txt", "puzzle4x4-12.txt", "puzzle4x4-13.txt", "puzzle4x4-14.txt",
+            "puzzle4x4-15.txt", "puzzle4x4-16.txt", "puzzle4x4-17.txt", "puzzle4x4-18.txt", "puzzle4x4-19.txt",
+            "puzzle4x4-20.txt", "puzzle4x4-21.txt", "puzzle4x4-22.txt", "puzzle4x4-23.txt", "puzzle4x4-24.txt",
+            "puzzle4x4-25.txt", "puzzle4x4-26.txt", "puzzle4x4-27.txt", "puzzle4x4-28.txt", "puzzle4x4-29.txt",
+            "puzzle4x4-30.txt", "puzzle4x4-31.txt", "puzzle4x4-32.txt", "puzzle4x4-33.txt", "puzzle4x4-34.txt",
+            "puzzle4x4-35.txt", "puzzle4x4-36.txt", "puzzle4x4-37.txt", "puzzle4x4-38.txt", "puzzle4x4-39.txt",
+            "puzzle4x4-40.txt", "puzzle4x4-41.txt", "puzzle4x4-42.txt", "puzzle4x4-43.txt", "puzzle4x4-44.txt",
+            "puzzle4x4-45.txt", "puzzle4x4-46.txt", "puzzle4x4-47.txt", "puzzle4x4-48.txt", "puzzle4x4-49.txt",
+            "puzzle4x4-50.txt", "puzzle4x4-unsolvable.txt"})
+    private String board;
+
+    @Param({"A_STAR", "IDA_STAR", "BIDIRECTIONAL", "PARALLEL_A_STAR"})
+    private String algorithm;
+
+    // worker threads of PARALLEL_A_STAR, 0 for one per available processor, the other algorithms ignore it
+    @Param({"0"})
+    private int workers;
+
+    private Target target;
+
+    @Setup
+    public void setUp() {
+        target = Targets.load("SolverTarget", Target.class);
+        target.setUp(new File(System.getProperty("boards", "week4/boards"), board).getPath(), algorithm,
+                workers == 0 ? Runtime.getRuntime().availableProcessors() : workers);
+    }
+
+    @Benchmark
+    public int solve() {
+        return target.solve();
+    }
+}
@@ -0,0 +1,21 @@
+package benchmarks;
+
+/**
+ * Targets creates the classes that run the measured code. The assignments live in the default package, as javac-algs4
+ * expects, and a named package cannot refer to it, while JMH only generates benchmarks for classes in a named package.
+ * So each benchmark here declares a Target interface and calls an implementation of it in the default package, loaded
+ * by name. With a single implementation loaded the JIT inlines those calls.
+ */
+final class Targets {
+    private Targets() {
+    }
+
+    // creates an instance of the class named className through its no argument constructor
+    static <T> T load(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create benchmark target " + className, e);
+        }
+    }
+}
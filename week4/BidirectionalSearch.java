@@ -0,0 +1,162 @@
+import edu.princeton.cs.algs4.MinPQ;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BidirectionalSearch runs front-to-end A* from both ends: a forward search from the initial board guided by the
+ * heuristic and a backward search from the goal board guided by the Manhattan distance to the initial board (moves
+ * are reversible, so a path found backwards is a path forwards). Each step expands the side with the smaller queue.
+ * Whenever a side reaches a board the other side has reached too, the two halves form a solution and the shortest
+ * one so far is kept. The search stops once the smallest priority of either queue is at least its length: with
+ * consistent heuristics no path through the rest of that queue can be shorter.
+ * The initial board must be solvable (see Board.isSolvable), otherwise the search never ends.
+ */
+class BidirectionalSearch {
+    private final Board initial;
+    private final Heuristic heuristic;
+    // largest number of boards to expand before giving up
+    private final long nodeLimit;
+    // initialCell[t] = cell (row-major) of tile t on the initial board
+    private final int[] initialCell;
+    private final SolverMetrics metrics;
+
+    // length of the shortest solution found so far and the board reached by both sides that it goes through
+    private int best = Integer.MAX_VALUE;
+    private Node meetingForward;
+    private Node meetingBackward;
+
+    BidirectionalSearch(Board initial, Heuristic heuristic, long nodeLimit, SolverMetrics metrics) {
+        this.initial = initial;
+        this.heuristic = heuristic;
+        this.nodeLimit = nodeLimit;
+        this.metrics = metrics;
+        int n = initial.dimension();
+        this.initialCell = new int[n * n];
+        for (int index = 0; index < n * n; index++) initialCell[initial.tileAt(index)] = index;
+    }
+
+    // boards of a shortest solution
+    List<Board> solve() {
+        Board goal = goal(initial.dimension());
+        if (initial.equals(goal)) return Collections.singletonList(initial);
+        Frontier forward = new Frontier(true);
+        Frontier backward = new Frontier(false);
+        forward.start(initial);
+        backward.start(goal);
+        while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+            metrics.frontier(forward.open.size() + backward.open.size());
+            if (forward.open.min().priority >= best || backward.open.min().priority >= best) break;
+            if (forward.open.size() <= backward.open.size()) {
+                expand(forward, backward);
+            } else {
+                expand(backward, forward);
+            }
+        }
+        return join();
+    }
+
+    private void expand(Frontier side, Frontier other) {
+        Node node = side.open.delMin();
+        if (!side.closed.add(node.board)) {
+            metrics.duplicatesPruned++;
+            return;
+        }
+        Solver.checkLimits(++metrics.expandedNodes, nodeLimit);
+        for (Board neighbour : node.board.neighbors()) {
+            int moves = node.moves + 1;
+            Node known = side.reached.get(neighbour);
+            if (known != null && known.moves <= moves) {
+                metrics.duplicatesPruned++;
+                continue;
+            }
+            Node child = new Node(neighbour, moves, node, moves + side.estimate(neighbour));
+            metrics.generatedNodes++;
+            side.reached.put(neighbour, child);
+            side.open.insert(child);
+            Node opposite = other.reached.get(neighbour);
+            if (opposite != null && moves + opposite.moves < best) {
+                best = moves + opposite.moves;
+                meetingForward = side.forward ? child : opposite;
+                meetingBackward = side.forward ? opposite : child;
+            }
+        }
+    }
+
+    // initial board to the meeting board along the forward half, then on to the goal along the backward half
+    private List<Board> join() {
+        List<Board> boards = new ArrayList<>();
+        for (Node node = meetingForward; node != null; node = node.previous) boards.add(node.board);
+        Collections.reverse(boards);
+        for (Node node = meetingBackward.previous; node != null; node = node.previous) boards.add(node.board);
+        return boards;
+    }
+
+    // Manhattan distance from the board to the initial board, consistent for the same reason as to the goal
+    private int distanceToInitial(Board board) {
+        metrics.heuristicEvaluations++;
+        int n = board.dimension();
+        int distance = 0;
+        for (int index = 0; index < n * n; index++) {
+            int t = board.tileAt(index);
+            if (t == 0) continue;
+            int target = initialCell[t];
+            distance += Math.abs(index / n - target / n) + Math.abs(index % n - target % n);
+        }
+        return distance;
+    }
+
+    private static Board goal(int n) {
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                tiles[i][j] = (i * n + j + 1) % (n * n);
+            }
+        }
+        return new Board(tiles);
+    }
+
+    // queue, best known nodes and expanded boards of one direction
+    private final class Frontier {
+        private final boolean forward;
+        private final MinPQ<Node> open = new MinPQ<>(Comparator.comparingInt((Node node) -> node.priority));
+        // cheapest node found so far for every board reached by this side
+        private final Map<Board, Node> reached = new HashMap<>();
+        private final Set<Board> closed = new HashSet<>();
+
+        Frontier(boolean forward) {
+            this.forward = forward;
+        }
+
+        private void start(Board board) {
+            Node node = new Node(board, 0, null, estimate(board));
+            reached.put(board, node);
+            open.insert(node);
+        }
+
+        private int estimate(Board board) {
+            return forward ? heuristic.estimate(board) : distanceToInitial(board);
+        }
+    }
+
+    private static final class Node {
+        private final Board board;
+        private final int moves;
+        // towards the start of the side the node belongs to
+        private final Node previous;
+        private final int priority;
+
+        Node(Board board, int moves, Node previous, int priority) {
+            this.board = board;
+            this.moves = moves;
+            this.previous = previous;
+            this.priority = priority;
+        }
+    }
+}
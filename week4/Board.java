@@ -3,7 +3,6 @@ import edu.princeton.cs.algs4.StdOut;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Board represents a square puzzle board that holds the tiles and can determine how far is the current board from the solved state,
@@ -11,156 +10,257 @@ import java.util.stream.Collectors;
  */
 
 public class Board {
+    // largest dimension whose tiles fit in 4 bits each
+    private static final int MAX_PACKED_DIMENSION = 4;
+    private static final long NIBBLE = 0xFL;
+
+    private final int n;
     /**
-     * tiles holds the game tiles in a square 2D int array, a 3x3 board has 9 values and 8 tiles,
-     * the tile with 0 value is not considered as a tile, it's an empty space
+     * tiles of a board up to 4x4 packed into a single long, 4 bits per tile, the tile of cell i (row-major) is held
+     * in bits 4i..4i+3. The tile with 0 value is not considered as a tile, it's an empty space
      */
-
-    private final int[][] tiles;
+    private final long packed;
+    // tiles of a larger board, one char per tile (row-major), null for packed boards
+    private final char[] cells;
+    // index (row-major) of the empty space
+    private final int blank;
+    // distances from the goal, computed once for the initial board and derived in O(1) for every move
+    private final int hamming;
+    private final int manhattan;
+    // zobrist hash of the tiles, maintained incrementally by every move
+    private final long zobrist;
 
     // create a board from an n-by-n array of tiles,
     // where tiles[row][col] = tile at (row, col)
     public Board(int[][] tiles) {
-        this.tiles = getCopy(tiles);
+        this.n = tiles.length;
+        long packedTiles = 0;
+        char[] cellTiles = n > MAX_PACKED_DIMENSION ? new char[n * n] : null;
+        int blankIndex = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int index = i * n + j;
+                int t = tiles[i][j];
+                if (t == 0) blankIndex = index;
+                if (cellTiles == null) packedTiles |= (long) t << (index << 2);
+                else cellTiles[index] = (char) t;
+            }
+        }
+        this.packed = packedTiles;
+        this.cells = cellTiles;
+        this.blank = blankIndex;
+        int hammingDistance = 0;
+        int manhattanDistance = 0;
+        for (int index = 0; index < n * n; index++) {
+            int t = tileAt(index);
+            if (t != 0 && !isInPlace(index, t)) {
+                hammingDistance++;
+                manhattanDistance += distance(t, index);
+            }
+        }
+        this.hamming = hammingDistance;
+        this.manhattan = manhattanDistance;
+        long hash = 0;
+        for (int index = 0; index < n * n; index++) {
+            hash ^= zobristKey(index, tileAt(index));
+        }
+        this.zobrist = hash;
+    }
+
+    private Board(int n, long packed, char[] cells, int blank, int hamming, int manhattan, long zobrist) {
+        this.n = n;
+        this.packed = packed;
+        this.cells = cells;
+        this.blank = blank;
+        this.hamming = hamming;
+        this.manhattan = manhattan;
+        this.zobrist = zobrist;
+    }
+
+    /**
+     * zobrist key of a tile at a cell, the keys are not stored in a table (that would need n^4 entries) but
+     * generated by the splitmix64 finalizer, which gives the same well mixed random value for the same input.
+     * The empty space has no key.
+     */
+    private long zobristKey(int index, int tile) {
+        if (tile == 0) return 0;
+        long z = ((long) index * n * n + tile) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 
     // string representation of this board
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(this.dimension());
-        sb.append("\n ");
-        final String body = Arrays.stream(tiles)
-                .map(row -> Arrays.stream(row)
-                        .mapToObj(String::valueOf)
-                        .collect(Collectors.joining(" ")))
-                .collect(Collectors.joining("\n "));
-        sb.append(body);
+        for (int i = 0; i < n; i++) {
+            sb.append("\n ");
+            for (int j = 0; j < n; j++) {
+                if (j > 0) sb.append(' ');
+                sb.append(tileAt(i * n + j));
+            }
+        }
         return sb.toString();
     }
 
     // board dimension n
     public int dimension() {
-        return this.tiles.length;
+        return this.n;
     }
 
     // number of tiles out of place
     public int hamming() {
-        int distance = 0;
-        for (int i = 0; i < tiles.length; i++) {
-            for (int j = 0; j < tiles[i].length; j++) {
-                int t = tiles[i][j];
-                if (t != 0 && !isInPlace(i, j, t)) {
-                    distance++;
-                }
-            }
-        }
-        return distance;
+        return hamming;
     }
 
-    private boolean isInPlace(int row, int col, int tileValue) {
-        return tileValue == (row * this.dimension() + col) + 1;
+    private boolean isInPlace(int index, int tileValue) {
+        return tileValue == index + 1;
     }
 
     // sum of Manhattan distances between tiles and goal
     public int manhattan() {
-        int manhattanDistance = 0;
-        for (int i = 0; i < tiles.length; i++) {
-            for (int j = 0; j < tiles[i].length; j++) {
-                int t = tiles[i][j];
-                if (t != 0 && !isInPlace(i, j, t)) {
-                    int dx, dy;
-                    int tx = (t - 1) / this.dimension();
-                    int ty = (t - 1) - (tx * this.dimension());
-                    dx = Math.abs(i - tx);
-                    dy = Math.abs(j - ty);
-                    manhattanDistance += (dx + dy);
-                }
-            }
-        }
-        return manhattanDistance;
+        return manhattan;
+    }
+
+    // Manhattan distance of tile t at the given index from its goal position
+    private int distance(int t, int index) {
+        int dx = Math.abs(index / n - (t - 1) / n);
+        int dy = Math.abs(index % n - (t - 1) % n);
+        return dx + dy;
     }
 
     //    // is this board the goal board?
     public boolean isGoal() {
-        return this.hamming() == 0;
+        return hamming == 0;
     }
 
     // does this board equal y?
     public boolean equals(Object y) {
         if (y != null && y.getClass() == this.getClass()) {
             Board that = (Board) y;
+            if (this.zobrist != that.zobrist) return false;
             boolean hasSameSize = this.dimension() == that.dimension();
-            boolean tilesInSamePosition = Arrays.deepEquals(this.tiles, that.tiles);
+            boolean tilesInSamePosition = this.packed == that.packed && Arrays.equals(this.cells, that.cells);
             return hasSameSize && tilesInSamePosition;
         } else {
             return false;
         }
     }
 
+    // consistent with equals, boards with the same tiles have the same zobrist hash
+    public int hashCode() {
+        return (int) (zobrist ^ (zobrist >>> 32));
+    }
+
     // all neighboring boards
     public Iterable<Board> neighbors() {
-        final int[] zeroPos = getZeroPos(tiles);
-//        System.out.println("zeroPos = " + zeroPos[0] + ":" +zeroPos[1]);
-        return createNeighbour(zeroPos[0], zeroPos[1]);
+        return createNeighbour(blank / n, blank % n);
     }
 
     // a board that is obtained by exchanging any pair of tiles
     public Board twin() {
 //         avoid row of 0, and swap the col 0 with col 1;
-        int[] zeroPos = getZeroPos(tiles);
-        int row = zeroPos[0];
+        int row = blank / n;
         int swapRow = row == 0 ? row + 1 : row == dimension() - 1 ? row - 1 : row + 1;
-        return new Board(exchangeTo(swapRow, 0, swapRow, 1));
+        return exchange(swapRow * n, swapRow * n + 1);
     }
 
     private List<Board> createNeighbour(int row, int col) {
-        List<Board> neighbouringBoards = new ArrayList<>();
+        List<Board> neighbouringBoards = new ArrayList<>(4);
         // go left (col -1)
         if (col - 1 >= 0) {
-            neighbouringBoards.add(new Board(exchangeTo(row, col, row, col - 1)));
+            neighbouringBoards.add(moveBlankTo(blank - 1));
         }
         // go right (col +1)
         if (col + 1 < dimension()) {
-            neighbouringBoards.add(new Board(exchangeTo(row, col, row, col + 1)));
+            neighbouringBoards.add(moveBlankTo(blank + 1));
         }
         // go down (row + 1)
         if (row + 1 < dimension()) {
-            neighbouringBoards.add(new Board(exchangeTo(row, col, row + 1, col)));
+            neighbouringBoards.add(moveBlankTo(blank + n));
         }
         // go up (row - 1)
         if (row - 1 >= 0) {
-            neighbouringBoards.add(new Board(exchangeTo(row, col, row - 1, col)));
+            neighbouringBoards.add(moveBlankTo(blank - n));
         }
 
         return neighbouringBoards;
     }
 
-    private int[][] exchangeTo(int row, int col, int newRow, int newCol) {
-        int[][] copy = getCopy(tiles);
-        int valToMove = copy[newRow][newCol];
-        int valFromMove = copy[row][col];
-        copy[newRow][newCol] = valFromMove;
-        copy[row][col] = valToMove;
-        return copy;
+    // tile at the given row-major index
+    int tileAt(int index) {
+        if (cells != null) return cells[index];
+        return (int) ((packed >>> (index << 2)) & NIBBLE);
     }
 
-    private int[] getZeroPos(int[][] tilesArr) {
-        int row = 0;
-        int col = 0;
-        for (int i = 0; i < tilesArr.length; i++) {
-            for (int j = 0; j < tilesArr[i].length; j++) {
-                int t = tilesArr[i][j];
-                if (t == 0) {
-                    row = i;
-                    col = j;
-                }
-            }
+    // index (row-major) of the empty space
+    int blankIndex() {
+        return blank;
+    }
+
+    /**
+     * decides solvability without searching: a slide along a row keeps the number of inversions (pairs of tiles in
+     * reverse order, the empty space ignored) and a slide along a column changes it by n - 1. For odd n the parity of
+     * the inversions never changes and the goal has none; for even n every column slide also moves the empty space by
+     * one row, so inversions + row of the empty space keeps its parity, which is odd at the goal.
+     * Inversions are counted in O(n^2 log n) with a fenwick tree over the tile values seen so far.
+     */
+    boolean isSolvable() {
+        int[] seen = new int[n * n];
+        long inversions = 0;
+        int count = 0;
+        for (int index = 0; index < n * n; index++) {
+            int t = tileAt(index);
+            if (t == 0) continue;
+            int smallerOrEqual = 0;
+            for (int i = t; i > 0; i -= i & -i) smallerOrEqual += seen[i - 1];
+            inversions += count - smallerOrEqual;
+            for (int i = t; i <= seen.length; i += i & -i) seen[i - 1]++;
+            count++;
+        }
+        if (n % 2 == 1) return inversions % 2 == 0;
+        return (inversions + blank / n) % 2 == 1;
+    }
+
+    // slides the tile at target (adjacent to the empty space) into the empty space, packed boards only rewrite two
+    // nibbles
+    Board moveBlankTo(int target) {
+        int tile = tileAt(target);
+        int movedHamming = hamming + hammingChange(tile, target, blank);
+        int movedManhattan = manhattan + distance(tile, blank) - distance(tile, target);
+        long movedZobrist = zobrist ^ zobristKey(target, tile) ^ zobristKey(blank, tile);
+        if (cells == null) {
+            long moved = packed - ((long) tile << (target << 2)) + ((long) tile << (blank << 2));
+            return new Board(n, moved, null, target, movedHamming, movedManhattan, movedZobrist);
         }
-        return new int[]{row, col};
+        char[] copy = cells.clone();
+        copy[blank] = copy[target];
+        copy[target] = 0;
+        return new Board(n, 0, copy, target, movedHamming, movedManhattan, movedZobrist);
     }
 
-    private int[][] getCopy(int[][] tilesToCopy) {
-        return Arrays.stream(tilesToCopy).map(int[]::clone).toArray(int[][]::new);
+    // exchanges the tiles of two (non blank) cells
+    private Board exchange(int i, int j) {
+        int ti = tileAt(i);
+        int tj = tileAt(j);
+        int swappedHamming = hamming + hammingChange(ti, i, j) + hammingChange(tj, j, i);
+        int swappedManhattan = manhattan + distance(ti, j) - distance(ti, i) + distance(tj, i) - distance(tj, j);
+        long swappedZobrist = zobrist ^ zobristKey(i, ti) ^ zobristKey(j, tj) ^ zobristKey(i, tj) ^ zobristKey(j, ti);
+        if (cells == null) {
+            long swapped = packed & ~(NIBBLE << (i << 2)) & ~(NIBBLE << (j << 2));
+            swapped |= (long) tj << (i << 2) | (long) ti << (j << 2);
+            return new Board(n, swapped, null, blank, swappedHamming, swappedManhattan, swappedZobrist);
+        }
+        char[] copy = cells.clone();
+        copy[i] = cells[j];
+        copy[j] = cells[i];
+        return new Board(n, 0, copy, blank, swappedHamming, swappedManhattan, swappedZobrist);
+    }
+
+    // change of the hamming distance when tile t moves from one cell to another
+    private int hammingChange(int t, int from, int to) {
+        return (isInPlace(from, t) ? 1 : 0) - (isInPlace(to, t) ? 1 : 0);
     }
 
     // unit testing (not graded)
@@ -209,6 +309,13 @@ public class Board {
         StdOut.println("Is Goal? " + isGoalUnsolved);
         assert !isGoalUnsolved;
 
+        final boolean isSolvable = board.isSolvable();
+        StdOut.println("Is Solvable? " + isSolvable);
+        assert isSolvable;
+        final boolean isTwinSolvable = board.twin().isSolvable();
+        StdOut.println("Is Solvable? (TWIN) " + isTwinSolvable);
+        assert !isTwinSolvable;
+
 
         final boolean isSameEqual = board.equals(new Board(threeByThree));
         StdOut.println("Is Equal? " + isSameEqual);
@@ -0,0 +1,194 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * BucketQueue is a priority queue for small non negative integer priorities such as the f values of a search: one
+ * bucket (an array used as a stack) per priority, so insert and delMin are O(1) amortized without comparisons.
+ * Items of equal priority come out last in first out, which in a search favours the most recently generated nodes.
+ * The scan for the lowest non empty bucket starts from the lowest priority inserted since it last ran, search keys
+ * stay in a narrow band so the scan is short.
+ * Buckets only cover that band: buckets[0] holds the priority base, which follows the items. When the band moves up,
+ * the empty buckets below it are reused for the priorities above it, so the memory depends on the width of the band,
+ * not on how large the priorities are.
+ */
+class BucketQueue<T> {
+    private static final int INITIAL_BUCKETS = 64;
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+    // buckets[p - base] = items of priority p, in insertion order up to sizes[p - base]
+    private Object[][] buckets = new Object[INITIAL_BUCKETS][];
+    private int[] sizes = new int[INITIAL_BUCKETS];
+    // priority of the first bucket
+    private int base;
+    private int size;
+    // no bucket below priority min holds an item
+    private int min;
+
+    // number of items in the queue
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * adds an item with the given priority.
+     * Can throw IllegalArgumentException if priority is negative.
+     */
+    void insert(T item, int priority) {
+        if (priority < 0) throw new IllegalArgumentException("Priority must not be negative");
+        if (size == 0) {
+            // every bucket is empty, they can start anywhere, with room below the priority too
+            base = Math.max(0, priority - buckets.length / 2);
+        } else if (priority < base) {
+            lowerBase(priority);
+        } else if (priority - base >= buckets.length) {
+            raiseBase(priority);
+        }
+        int index = priority - base;
+        Object[] bucket = buckets[index];
+        if (bucket == null) {
+            bucket = new Object[INITIAL_BUCKET_CAPACITY];
+            buckets[index] = bucket;
+        } else if (sizes[index] == bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+            buckets[index] = bucket;
+        }
+        bucket[sizes[index]++] = item;
+        if (size == 0 || priority < min) min = priority;
+        size++;
+    }
+
+    // moves the buckets up so that the first one holds at most priority, leaving half the free buckets below it
+    private void lowerBase(int priority) {
+        int used = buckets.length;
+        while (sizes[used - 1] == 0) used--;
+        int offset = base - priority;
+        int length = grownLength(used + offset);
+        int room = Math.min(priority, (length - used - offset) / 2);
+        shift(offset + room, length);
+        base = priority - room;
+    }
+
+    // moves the buckets down to the lowest one that can be non empty, so that the priority fits above them
+    private void raiseBase(int priority) {
+        int offset = min - base;
+        shift(-offset, grownLength(priority - min + 1));
+        base = min;
+    }
+
+    // length of the buckets for the given number of buckets in use, doubled once they would be more than 3/4 full
+    private int grownLength(int needed) {
+        if (4L * needed <= 3L * buckets.length) return buckets.length;
+        return Math.max(needed, 2 * buckets.length);
+    }
+
+    /**
+     * moves every bucket by offset into arrays of the given length, at least the current one. The empty buckets moved
+     * out at one end come back at the other end, so their arrays are reused.
+     */
+    private void shift(int offset, int length) {
+        Object[][] shiftedBuckets = new Object[length][];
+        int[] shiftedSizes = new int[length];
+        for (int i = 0; i < buckets.length; i++) {
+            int j = Math.floorMod(i + offset, length);
+            shiftedBuckets[j] = buckets[i];
+            shiftedSizes[j] = sizes[i];
+        }
+        buckets = shiftedBuckets;
+        sizes = shiftedSizes;
+    }
+
+    // smallest priority in the queue, can throw NoSuchElementException if the queue is empty
+    int minPriority() {
+        if (size == 0) throw new NoSuchElementException("Priority queue underflow");
+        while (sizes[min - base] == 0) min++;
+        return min;
+    }
+
+    // removes and returns the latest inserted item of the smallest priority, can throw NoSuchElementException if empty
+    @SuppressWarnings("unchecked")
+    T delMin() {
+        int index = minPriority() - base;
+        Object[] bucket = buckets[index];
+        int last = --sizes[index];
+        T item = (T) bucket[last];
+        bucket[last] = null;
+        size--;
+        return item;
+    }
+
+    /**
+     * checks the order of delMin against a reference queue, one stack per priority in a TreeMap, while the priorities
+     * drift up and down, jump far in both directions and the queue empties, so the buckets are rebased, rotated and
+     * grown, and checks that the keys of a search take buckets for their band only. Run with java -ea BucketQueue.
+     */
+    public static void main(String[] args) {
+        BucketQueue<Integer> ties = new BucketQueue<>();
+        for (int i = 0; i < 3; i++) ties.insert(i, 5);
+        ties.insert(3, 7);
+        final int lifo = ties.delMin() * 100 + ties.delMin() * 10 + ties.delMin();
+        StdOut.println("Ties (LIFO): " + lifo);
+        assert lifo == 210;
+        assert ties.minPriority() == 7 && ties.size() == 1;
+
+        Random random = new Random(20180120L);
+        long operations = 0;
+        for (int run = 0; run < 100; run++) {
+            BucketQueue<Integer> queue = new BucketQueue<>();
+            TreeMap<Integer, Deque<Integer>> reference = new TreeMap<>();
+            int size = 0;
+            int center = random.nextInt(1_000_000);
+            for (int id = 0; id < 20000; id++, operations++) {
+                int step = random.nextInt(1000);
+                if (step < 20) center += random.nextInt(300);
+                else if (step < 30) center = Math.max(0, center - random.nextInt(300));
+                else if (step == 30) center = Math.max(0, center + random.nextInt(200_000) - 100_000);
+                if (size == 0 || random.nextInt(10) < 6) {
+                    int priority = Math.max(0, center + random.nextInt(400) - 100);
+                    queue.insert(id, priority);
+                    reference.computeIfAbsent(priority, key -> new ArrayDeque<>()).push(id);
+                    size++;
+                } else {
+                    // now and then drain the queue so the next insert starts from an empty one
+                    int removals = random.nextInt(500) == 0 ? size : 1;
+                    for (int i = 0; i < removals; i++, size--) {
+                        int priority = reference.firstKey();
+                        assert queue.minPriority() == priority;
+                        Deque<Integer> items = reference.get(priority);
+                        int expected = items.pop();
+                        if (items.isEmpty()) reference.remove(priority);
+                        assert queue.delMin() == expected;
+                    }
+                }
+                assert queue.size() == size && queue.isEmpty() == (size == 0);
+            }
+        }
+        StdOut.println("Same order as the reference queue over " + operations + " operations");
+
+        // the keys of an A* search, f * 128 + 127 - depth as in Solver.queueKey: the children of the node of least key
+        // go one key lower (deeper, same f) or to the next f, so the keys climb far while the queue holds a narrow band
+        BucketQueue<Integer> search = new BucketQueue<>();
+        search.insert(84_000_127, 84_000_127);
+        for (int expanded = 0; expanded < 1_000_000; expanded++) {
+            int key = search.delMin();
+            int f = key / 128;
+            int depth = Math.min(127 - key % 128 + 1, 127);
+            // fewer than one child of the same f on average, so every f runs out and the search moves on to the next
+            if (random.nextInt(10) < 5) search.insert(f * 128 + 127 - depth, f * 128 + 127 - depth);
+            if (random.nextInt(10) < 6 || search.isEmpty()) {
+                search.insert((f + 2) * 128 + 127 - depth, (f + 2) * 128 + 127 - depth);
+            }
+        }
+        StdOut.println("Buckets for keys from 84000127 to " + search.minPriority() + ": " + search.buckets.length);
+        assert search.buckets.length <= 4096;
+    }
+}
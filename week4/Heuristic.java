@@ -0,0 +1,15 @@
+/**
+ * Heuristic estimates the number of moves from a board to the goal board. The solvers only return shortest solutions
+ * if the estimate is admissible (never more than the real number of moves), and A* expands every board at most once
+ * only if it is also consistent (an estimate drops by at most 1 per move).
+ */
+public interface Heuristic {
+    // sum of Manhattan distances between tiles and goal, kept up to date by Board in O(1) per move
+    Heuristic MANHATTAN = Board::manhattan;
+
+    // Manhattan distance plus 2 moves for every tile that has to leave its goal row or column to let others pass
+    Heuristic LINEAR_CONFLICT = new LinearConflictHeuristic();
+
+    // estimated number of moves from the board to the goal board
+    int estimate(Board board);
+}
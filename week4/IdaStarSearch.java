@@ -0,0 +1,86 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IdaStarSearch finds a shortest solution with iterative deepening A*: a depth first search that cuts off every
+ * path whose f = moves + heuristic estimate exceeds a bound, restarted with the smallest f that exceeded it until the goal is
+ * reached. Only the current path is kept, each move pushes the board reached by sliding two tiles and the undo pops
+ * it, so the memory is proportional to the solution depth instead of the frontier.
+ * The initial board must be solvable (see Board.isSolvable), otherwise the search never ends.
+ */
+class IdaStarSearch {
+    // returned by search when the goal board was reached
+    private static final int FOUND = -1;
+
+    private final Board initial;
+    private final Heuristic heuristic;
+    // largest number of boards to expand before giving up
+    private final long nodeLimit;
+    // boards from the initial board to the board being expanded
+    private final List<Board> path = new ArrayList<>();
+    private final SolverMetrics metrics;
+
+    IdaStarSearch(Board initial, Heuristic heuristic, long nodeLimit, SolverMetrics metrics) {
+        this.initial = initial;
+        this.heuristic = heuristic;
+        this.nodeLimit = nodeLimit;
+        this.metrics = metrics;
+    }
+
+    // boards of a shortest solution
+    List<Board> solve() {
+        path.add(initial);
+        int bound = heuristic.estimate(initial);
+        while (true) {
+            int result = search(initial, 0, bound, -1);
+            if (result == FOUND) return new ArrayList<>(path);
+            bound = result;
+        }
+    }
+
+    /**
+     * depth first search below board, returns FOUND if the goal was reached (path then ends with the goal board)
+     * or the smallest f value that exceeded the bound.
+     */
+    private int search(Board board, int moves, int bound, int previousBlank) {
+        int f = moves + heuristic.estimate(board);
+        if (f > bound) return f;
+        if (board.isGoal()) return FOUND;
+        Solver.checkLimits(++metrics.expandedNodes, nodeLimit);
+        int blank = board.blankIndex();
+        int min = Integer.MAX_VALUE;
+        for (int direction = 0; direction < 4; direction++) {
+            int target = target(board, direction);
+            if (target < 0) continue;
+            // never undo the previous move
+            if (target == previousBlank) {
+                metrics.duplicatesPruned++;
+                continue;
+            }
+            Board next = board.moveBlankTo(target);
+            metrics.generatedNodes++;
+            path.add(next);
+            metrics.frontier(path.size());
+            int result = search(next, moves + 1, bound, blank);
+            if (result == FOUND) return FOUND;
+            path.remove(path.size() - 1);
+            min = Math.min(min, result);
+        }
+        return min;
+    }
+
+    /**
+     * cell the empty space moves to in the given direction, in the order of Board.neighbors(): left, right, down,
+     * up, or -1 if that would leave the board
+     */
+    private static int target(Board board, int direction) {
+        int n = board.dimension();
+        int blank = board.blankIndex();
+        switch (direction) {
+            case 0: return blank % n > 0 ? blank - 1 : -1;
+            case 1: return blank % n + 1 < n ? blank + 1 : -1;
+            case 2: return blank / n + 1 < n ? blank + n : -1;
+            default: return blank / n > 0 ? blank - n : -1;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * LinearConflictHeuristic adds to the Manhattan distance the linear conflicts of every row and column: two tiles are
+ * in conflict if both are in their goal line but in reverse order, one of them has to leave the line and come back,
+ * which costs 2 moves on top of the Manhattan distance.
+ * Counting every conflicting pair would overestimate when a tile conflicts with several others, so for each line only
+ * the minimum number of tiles that have to leave it is counted: the tiles in the line minus the longest sequence that
+ * is already in goal order.
+ */
+class LinearConflictHeuristic implements Heuristic {
+
+    public int estimate(Board board) {
+        int n = board.dimension();
+        int[] goalOrder = new int[n];
+        int conflicts = 0;
+        for (int line = 0; line < n; line++) {
+            // tiles in their goal row, by goal column in the order they appear in the row
+            int size = 0;
+            for (int col = 0; col < n; col++) {
+                int t = board.tileAt(line * n + col);
+                if (t != 0 && (t - 1) / n == line) goalOrder[size++] = (t - 1) % n;
+            }
+            conflicts += size - longestIncreasing(goalOrder, size);
+            // tiles in their goal column, by goal row in the order they appear in the column
+            size = 0;
+            for (int row = 0; row < n; row++) {
+                int t = board.tileAt(row * n + line);
+                if (t != 0 && (t - 1) % n == line) goalOrder[size++] = (t - 1) / n;
+            }
+            conflicts += size - longestIncreasing(goalOrder, size);
+        }
+        return board.manhattan() + 2 * conflicts;
+    }
+
+    // length of the longest increasing subsequence of the first size values (O(size^2), size is at most n)
+    private static int longestIncreasing(int[] values, int size) {
+        if (size < 2) return size;
+        int[] lengths = new int[size];
+        int longest = 0;
+        for (int i = 0; i < size; i++) {
+            lengths[i] = 1;
+            for (int j = 0; j < i; j++) {
+                if (values[j] < values[i] && lengths[j] + 1 > lengths[i]) lengths[i] = lengths[j] + 1;
+            }
+            longest = Math.max(longest, lengths[i]);
+        }
+        return longest;
+    }
+}
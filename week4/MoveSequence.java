@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * MoveSequence is a solution stored as the moves of the empty space, 2 bits each (left, right, down, up, in the
+ * order of Board.neighbors()), instead of as the boards along it. Iterating replays the moves from the initial board,
+ * so a board only exists while it is being visited and a 80 move solution takes 3 longs.
+ */
+class MoveSequence implements Iterable<Board> {
+    private static final int MOVES_PER_WORD = Long.SIZE / 2;
+
+    private final Board initial;
+    private final long[] words;
+    private final int length;
+
+    // a sequence of length moves from the initial board, every move still to be set
+    MoveSequence(Board initial, int length) {
+        this.initial = initial;
+        this.length = length;
+        this.words = new long[(length + MOVES_PER_WORD - 1) / MOVES_PER_WORD];
+    }
+
+    // the moves along consecutive boards, the first one being the initial board
+    static MoveSequence of(List<Board> boards) {
+        MoveSequence moves = new MoveSequence(boards.get(0), boards.size() - 1);
+        for (int i = 1; i < boards.size(); i++) moves.set(i - 1, boards.get(i - 1), boards.get(i));
+        return moves;
+    }
+
+    // number of moves
+    int length() {
+        return length;
+    }
+
+    /**
+     * sets the move at index to the one leading from a board to its neighbour.
+     * Can throw IllegalArgumentException if the boards are not neighbours.
+     */
+    void set(int index, Board from, Board to) {
+        int n = from.dimension();
+        int step = to.blankIndex() - from.blankIndex();
+        int direction;
+        if (step == -1) direction = 0;
+        else if (step == 1) direction = 1;
+        else if (step == n) direction = 2;
+        else if (step == -n) direction = 3;
+        else throw new IllegalArgumentException("Boards are not neighbours");
+        int shift = (index % MOVES_PER_WORD) * 2;
+        long word = words[index / MOVES_PER_WORD] & ~(3L << shift);
+        words[index / MOVES_PER_WORD] = word | (long) direction << shift;
+    }
+
+    // the initial board, then the board after every move
+    public Iterator<Board> iterator() {
+        return new Iterator<Board>() {
+            private Board current;
+            // number of boards returned so far
+            private int returned;
+
+            public boolean hasNext() {
+                return returned <= length;
+            }
+
+            public Board next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                current = returned == 0 ? initial : current.moveBlankTo(target(current, returned - 1));
+                returned++;
+                return current;
+            }
+        };
+    }
+
+    // the board after index moves, given, then the board after every later move
+    List<Board> boardsFrom(Board board, int index) {
+        List<Board> boards = new ArrayList<>(length - index + 1);
+        boards.add(board);
+        for (int i = index; i < length; i++) {
+            board = board.moveBlankTo(target(board, i));
+            boards.add(board);
+        }
+        return boards;
+    }
+
+    // cell the empty space of the board moves to with the move at index
+    private int target(Board board, int index) {
+        int direction = (int) (words[index / MOVES_PER_WORD] >>> (index % MOVES_PER_WORD) * 2) & 3;
+        int blank = board.blankIndex();
+        switch (direction) {
+            case 0: return blank - 1;
+            case 1: return blank + 1;
+            case 2: return blank + board.dimension();
+            default: return blank - board.dimension();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ParallelAStarSearch is hash distributed A* (HDA*): every board is owned by the worker its hash maps to, which
+ * alone keeps its best known number of moves and its open list, so workers share no search structure. A worker
+ * expands its own nodes and sends every generated node to the owner of its board through the owner's lock-free
+ * inbox.
+ * Workers do not expand in global f order, so the first goal reached need not be the nearest: the shortest solution
+ * found so far is kept as the incumbent and a worker is idle once all its open nodes have f at least the incumbent's
+ * length (with a consistent heuristic none of them can lead to a shorter solution) and its inbox is empty.
+ * The search is over when every worker is idle and no node is in flight; both are tracked by one counter, work, of
+ * busy workers plus sent but not yet received nodes, so a single read of 0 proves that no work is left anywhere.
+ * The initial board must be solvable (see Board.isSolvable), otherwise the search never ends.
+ */
+class ParallelAStarSearch {
+    // how long an idle worker waits before looking at its inbox again
+    private static final long IDLE_PARK_NANOS = 20_000;
+
+    private final Board initial;
+    private final Heuristic heuristic;
+    private final long nodeLimit;
+    private final SolverMetrics metrics;
+    private final Worker[] workers;
+    // busy workers plus nodes sent but not yet received
+    private final AtomicLong work = new AtomicLong();
+    // boards expanded by all workers together, for the node limit
+    private final AtomicLong expandedNodes = new AtomicLong();
+    // goal node of the shortest solution found so far
+    private Node incumbent;
+    private volatile int incumbentMoves = Integer.MAX_VALUE;
+    // set once a worker failed or the search is given up, the other workers then return
+    private volatile boolean stopped;
+
+    ParallelAStarSearch(Board initial, Heuristic heuristic, long nodeLimit, SolverMetrics metrics, int workerCount) {
+        this.initial = initial;
+        this.heuristic = heuristic;
+        this.nodeLimit = nodeLimit;
+        this.metrics = metrics;
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) workers[i] = new Worker();
+    }
+
+    // boards of a shortest solution, can throw CancellationException if the search gives up
+    List<Board> solve() {
+        ExecutorService pool = Executors.newFixedThreadPool(workers.length);
+        try {
+            // the initial node counts as in flight until its owner picks it up
+            send(new Node(initial, 0, null, heuristic.estimate(initial)));
+            List<Future<?>> futures = new ArrayList<>();
+            for (Worker worker : workers) futures.add(pool.submit(worker));
+            for (Future<?> future : futures) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Gave up, interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Search worker failed", e.getCause());
+        } finally {
+            stopped = true;
+            pool.shutdownNow();
+            awaitTermination(pool);
+            for (Worker worker : workers) worker.addTo(metrics);
+            metrics.heuristicEvaluations++;
+        }
+        List<Board> boards = new ArrayList<>();
+        for (Node node = incumbent; node != null; node = node.previous) boards.add(node.board);
+        Collections.reverse(boards);
+        return boards;
+    }
+
+    private void send(Node node) {
+        work.incrementAndGet();
+        workers[Math.floorMod(node.board.hashCode(), workers.length)].inbox.add(node);
+    }
+
+    private synchronized void offerSolution(Node goal) {
+        if (goal.moves < incumbentMoves) {
+            incumbent = goal;
+            incumbentMoves = goal.moves;
+        }
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final Queue<Node> inbox = new ConcurrentLinkedQueue<>();
+        private final BucketQueue<Node> open = new BucketQueue<>();
+        // fewest moves found so far to every board owned by this worker
+        private final Map<Board, Integer> reached = new HashMap<>();
+        private long expanded;
+        private long generated;
+        private long duplicates;
+        private long peakOpen;
+        private long evaluations;
+
+        public void run() {
+            try {
+                search();
+            } catch (RuntimeException e) {
+                stopped = true;
+                throw e;
+            }
+        }
+
+        private void search() {
+            boolean busy = false;
+            while (!stopped) {
+                for (Node node = inbox.poll(); node != null; node = inbox.poll()) {
+                    receive(node);
+                    // an idle worker takes over the unit of work of the node that woke it up
+                    if (busy) {
+                        work.decrementAndGet();
+                    } else {
+                        busy = true;
+                    }
+                }
+                if (!open.isEmpty() && open.minPriority() / Solver.DEPTH_RANGE < incumbentMoves) {
+                    expand(open.delMin());
+                    continue;
+                }
+                if (busy) {
+                    busy = false;
+                    work.decrementAndGet();
+                }
+                if (work.get() == 0 || Thread.currentThread().isInterrupted()) stopped = true;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+
+        private void receive(Node node) {
+            Integer known = reached.get(node.board);
+            if (known != null && known <= node.moves) {
+                duplicates++;
+                return;
+            }
+            reached.put(node.board, node.moves);
+            if (node.board.isGoal()) {
+                offerSolution(node);
+                return;
+            }
+            open.insert(node, Solver.queueKey(node.priority, node.moves));
+            peakOpen = Math.max(peakOpen, open.size());
+        }
+
+        private void expand(Node node) {
+            // a node superseded by a cheaper one received later
+            if (reached.get(node.board) < node.moves) {
+                duplicates++;
+                return;
+            }
+            expanded++;
+            Solver.checkLimits(expandedNodes.incrementAndGet(), nodeLimit);
+            Board parent = node.previous == null ? null : node.previous.board;
+            for (Board neighbour : node.board.neighbors()) {
+                if (neighbour.equals(parent)) {
+                    duplicates++;
+                    continue;
+                }
+                int moves = node.moves + 1;
+                evaluations++;
+                send(new Node(neighbour, moves, node, moves + heuristic.estimate(neighbour)));
+                generated++;
+            }
+        }
+
+        // adds the counters of this worker to the metrics of the search once the worker is done, the peak frontier
+        // becomes the sum of the workers' peaks
+        private void addTo(SolverMetrics total) {
+            total.expandedNodes += expanded;
+            total.generatedNodes += generated;
+            total.duplicatesPruned += duplicates;
+            total.peakFrontier += peakOpen;
+            total.heuristicEvaluations += evaluations;
+        }
+    }
+
+    private static final class Node {
+        private final Board board;
+        private final int moves;
+        private final Node previous;
+        private final int priority;
+
+        Node(Board board, int moves, Node previous, int priority) {
+            this.board = board;
+            this.moves = moves;
+            this.previous = previous;
+            this.priority = priority;
+        }
+    }
+}
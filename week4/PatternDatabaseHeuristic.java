@@ -0,0 +1,322 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * PatternDatabaseHeuristic is an additive disjoint pattern database: the tiles are split into disjoint patterns and
+ * for every placement of a pattern's tiles a table holds the number of moves of those tiles needed to bring them to
+ * their goal cells. Tiles outside the pattern are not told apart and their moves are not counted, so every move only
+ * counts in the table of the tile it moves. The sum over the patterns is therefore admissible and consistent, and
+ * never less than the Manhattan distance.
+ * The tables are filled by a breadth first search backwards from the goal (see build) and hold one byte per
+ * placement, placements are ranked as partial permutations (16*15*14*13*12*11 entries for 6 tiles of a 4x4 board).
+ * They can be saved to a file and memory-mapped from it instead of being recomputed.
+ */
+public class PatternDatabaseHeuristic implements Heuristic {
+    private static final int MAGIC = 0x50444231; // "PDB1"
+    private static final byte UNVISITED = -1;
+    // a placement is packed into a long, 6 bits for the cell of each tile (validate keeps patterns below 10 tiles)
+    private static final int CELL_BITS = 6;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private final int n;
+    private final int[][] patterns;
+    // tables[p].get(rank) = moves of the tiles of pattern p from the placement of that rank to their goal cells
+    private final ByteBuffer[] tables;
+    // patternOf[tile] = index of the pattern holding the tile, -1 for the blank and tiles in no pattern
+    private final int[] patternOf;
+    // slotOf[tile] = position of the tile in its pattern
+    private final int[] slotOf;
+
+    /**
+     * builds the tables of the given disjoint patterns.
+     * Can throw IllegalArgumentException if a pattern is empty, tiles are repeated or out of range.
+     * @param n dimension of the boards
+     * @param patterns the tiles of every pattern
+     */
+    public PatternDatabaseHeuristic(int n, int[][] patterns) {
+        this(n, validate(n, patterns), new ByteBuffer[patterns.length]);
+        for (int p = 0; p < patterns.length; p++) {
+            tables[p] = ByteBuffer.wrap(build(this.patterns[p]));
+        }
+    }
+
+    private PatternDatabaseHeuristic(int n, int[][] patterns, ByteBuffer[] tables) {
+        this.n = n;
+        this.patterns = patterns;
+        this.tables = tables;
+        this.patternOf = new int[n * n];
+        this.slotOf = new int[n * n];
+        Arrays.fill(patternOf, -1);
+        for (int p = 0; p < patterns.length; p++) {
+            for (int i = 0; i < patterns[p].length; i++) {
+                patternOf[patterns[p][i]] = p;
+                slotOf[patterns[p][i]] = i;
+            }
+        }
+    }
+
+    /**
+     * the default partitions: 6-6-3 for 4x4 boards and 4-4 for 3x3 boards.
+     * Can throw IllegalArgumentException for other dimensions.
+     * @param n dimension of the boards
+     * @return the pattern database of the default partition
+     */
+    public static PatternDatabaseHeuristic forDimension(int n) {
+        if (n == 4) {
+            return new PatternDatabaseHeuristic(4, new int[][]{
+                    {1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}});
+        }
+        if (n == 3) {
+            return new PatternDatabaseHeuristic(3, new int[][]{{1, 2, 3, 4}, {5, 6, 7, 8}});
+        }
+        throw new IllegalArgumentException("No default pattern partition for dimension " + n);
+    }
+
+    /**
+     * memory-maps a pattern database saved by save.
+     * Can throw IllegalArgumentException if the file is not a pattern database.
+     * @param file the file to map
+     * @return the mapped pattern database
+     * @throws IOException if the file can not be read
+     */
+    public static PatternDatabaseHeuristic load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("Not a pattern database: " + file);
+            int n = buffer.getInt();
+            int[][] patterns = new int[buffer.getInt()][];
+            for (int p = 0; p < patterns.length; p++) {
+                patterns[p] = new int[buffer.getInt()];
+                for (int i = 0; i < patterns[p].length; i++) patterns[p][i] = buffer.getInt();
+            }
+            validate(n, patterns);
+            ByteBuffer[] tables = new ByteBuffer[patterns.length];
+            for (int p = 0; p < patterns.length; p++) {
+                int size = placements(n * n, patterns[p].length);
+                ByteBuffer table = buffer.slice();
+                table.limit(size);
+                tables[p] = table;
+                buffer.position(buffer.position() + size);
+            }
+            return new PatternDatabaseHeuristic(n, patterns, tables);
+        }
+    }
+
+    /**
+     * writes the patterns and their tables to a file that load can map.
+     * @param file the file to write
+     * @throws IOException if the file can not be written
+     */
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(n);
+            out.writeInt(patterns.length);
+            for (int[] pattern : patterns) {
+                out.writeInt(pattern.length);
+                for (int t : pattern) out.writeInt(t);
+            }
+            for (ByteBuffer table : tables) write(table, out);
+        }
+    }
+
+    public int estimate(Board board) {
+        if (board.dimension() != n) {
+            throw new IllegalArgumentException("Pattern database is for dimension " + n);
+        }
+        // called for every generated node, so the placements are packed into longs instead of arrays
+        int size = n * n;
+        int estimate = 0;
+        if (size <= Long.SIZE / 4) {
+            // one scan for the cell of every tile, 4 bits each
+            long cellOf = 0;
+            for (int index = 0; index < size; index++) cellOf |= (long) index << (board.tileAt(index) << 2);
+            for (int p = 0; p < patterns.length; p++) {
+                int[] pattern = patterns[p];
+                long cells = 0;
+                for (int i = 0; i < pattern.length; i++) {
+                    cells |= (cellOf >>> (pattern[i] << 2) & 0xF) << (CELL_BITS * i);
+                }
+                estimate += tables[p].get(rank(cells, pattern.length, size));
+            }
+            return estimate;
+        }
+        for (int p = 0; p < patterns.length; p++) {
+            long cells = 0;
+            for (int index = 0; index < size; index++) {
+                int tile = board.tileAt(index);
+                if (patternOf[tile] == p) cells |= (long) index << (CELL_BITS * slotOf[tile]);
+            }
+            estimate += tables[p].get(rank(cells, patterns[p].length, size));
+        }
+        return estimate;
+    }
+
+    /**
+     * 0-1 breadth first search from the goal over the states (placement of the pattern tiles, cell of the empty
+     * space): sliding a pattern tile into the empty space costs 1, sliding any other tile costs 0. States are
+     * processed level by level, a 0 cost move adds to the current level and a 1 cost move to the next one. The table
+     * keeps, for every placement, the minimum over the cells of the empty space.
+     */
+    private byte[] build(int[] pattern) {
+        int size = n * n;
+        int k = pattern.length;
+        byte[] table = new byte[placements(size, k)];
+        byte[] distances = new byte[Math.multiplyExact(table.length, size)];
+        Arrays.fill(distances, UNVISITED);
+        int[] cells = new int[k];
+        for (int i = 0; i < k; i++) cells[i] = pattern[i] - 1;
+        int goal = rank(cells, k, size) * size + size - 1;
+        distances[goal] = 0;
+        int[] current = {goal};
+        int currentSize = 1;
+        int[] next = new int[16];
+        int nextSize = 0;
+        for (int level = 0; currentSize > 0; level++) {
+            for (int q = 0; q < currentSize; q++) {
+                int state = current[q];
+                // stale entry, the state was reached at a lower level after it was queued
+                if (distances[state] != level) continue;
+                int rank = state / size;
+                int blank = state % size;
+                unrank(rank, cells, k, size);
+                for (int direction = 0; direction < 4; direction++) {
+                    int from = adjacent(blank, direction);
+                    if (from < 0) continue;
+                    int tile = indexOf(cells, k, from);
+                    if (tile < 0) {
+                        int moved = rank * size + from;
+                        if (distances[moved] == UNVISITED || distances[moved] == level + 1) {
+                            distances[moved] = (byte) level;
+                            if (currentSize == current.length) current = Arrays.copyOf(current, currentSize * 2);
+                            current[currentSize++] = moved;
+                        }
+                    } else {
+                        cells[tile] = blank;
+                        int moved = rank(cells, k, size) * size + from;
+                        cells[tile] = from;
+                        if (distances[moved] == UNVISITED) {
+                            distances[moved] = (byte) (level + 1);
+                            if (nextSize == next.length) next = Arrays.copyOf(next, nextSize * 2);
+                            next[nextSize++] = moved;
+                        }
+                    }
+                }
+            }
+            int[] swap = current;
+            current = next;
+            currentSize = nextSize;
+            next = swap;
+            nextSize = 0;
+        }
+        for (int rank = 0; rank < table.length; rank++) {
+            int min = UNVISITED & 0xFF;
+            for (int blank = 0; blank < size; blank++) {
+                min = Math.min(min, distances[rank * size + blank] & 0xFF);
+            }
+            table[rank] = (byte) min;
+        }
+        return table;
+    }
+
+    // position of cell among the first k cells, -1 if absent
+    private static int indexOf(int[] cells, int k, int cell) {
+        for (int i = 0; i < k; i++) {
+            if (cells[i] == cell) return i;
+        }
+        return -1;
+    }
+
+    // neighbouring cell in the direction left, right, down, up, or -1 if it would leave the board
+    private int adjacent(int cell, int direction) {
+        switch (direction) {
+            case 0: return cell % n > 0 ? cell - 1 : -1;
+            case 1: return cell % n + 1 < n ? cell + 1 : -1;
+            case 2: return cell / n + 1 < n ? cell + n : -1;
+            default: return cell / n > 0 ? cell - n : -1;
+        }
+    }
+
+    /**
+     * rank of a placement of k tiles on size cells as a partial permutation: the i-th digit is the cell of tile i
+     * among the cells not held by tiles 0..i-1, and has radix size - i.
+     */
+    private static int rank(int[] cells, int k, int size) {
+        long packed = 0;
+        for (int i = 0; i < k; i++) packed |= (long) cells[i] << (CELL_BITS * i);
+        return rank(packed, k, size);
+    }
+
+    // rank of a placement whose cells are packed CELL_BITS bits each, tile 0 in the lowest bits
+    private static int rank(long cells, int k, int size) {
+        long held = 0;
+        int rank = 0;
+        int radix = 1;
+        for (int i = 0; i < k; i++) {
+            int cell = (int) (cells >>> (CELL_BITS * i) & CELL_MASK);
+            int digit = cell - Long.bitCount(held & ((1L << cell) - 1));
+            held |= 1L << cell;
+            rank += digit * radix;
+            radix *= size - i;
+        }
+        return rank;
+    }
+
+    private static void unrank(int rank, int[] cells, int k, int size) {
+        long held = 0;
+        for (int i = 0; i < k; i++) {
+            int digit = rank % (size - i);
+            rank /= size - i;
+            // the digit-th cell not held by tiles 0..i-1
+            long free = ~held;
+            for (int skip = 0; skip < digit; skip++) free &= free - 1;
+            cells[i] = Long.numberOfTrailingZeros(free);
+            held |= 1L << cells[i];
+        }
+    }
+
+    // size * (size - 1) * ... * (size - k + 1)
+    private static int placements(int size, int k) {
+        long count = 1;
+        for (int i = 0; i < k; i++) count *= size - i;
+        if (count > Integer.MAX_VALUE) throw new IllegalArgumentException("Pattern too large");
+        return (int) count;
+    }
+
+    private static int[][] validate(int n, int[][] patterns) {
+        // placements are ranked with a 64 bit mask of the held cells
+        if (n < 2 || n * n > Long.SIZE) throw new IllegalArgumentException("Unsupported dimension " + n);
+        if (patterns == null || patterns.length == 0) throw new IllegalArgumentException("No patterns");
+        boolean[] seen = new boolean[n * n];
+        int[][] copy = new int[patterns.length][];
+        for (int p = 0; p < patterns.length; p++) {
+            if (patterns[p] == null || patterns[p].length == 0) throw new IllegalArgumentException("Empty pattern");
+            for (int t : patterns[p]) {
+                if (t <= 0 || t >= n * n || seen[t]) throw new IllegalArgumentException("Invalid pattern tile " + t);
+                seen[t] = true;
+            }
+            placements(n * n, patterns[p].length);
+            copy[p] = patterns[p].clone();
+        }
+        return copy;
+    }
+
+    private static void write(ByteBuffer table, OutputStream out) throws IOException {
+        ByteBuffer source = table.duplicate();
+        source.rewind();
+        byte[] chunk = new byte[8192];
+        while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+}
@@ -23,31 +23,60 @@
  *  puzzle44.txt: 44
  *  puzzle45.txt: 45
  *
+ *  With -batch the files are solved concurrently on a pool of worker
+ *  threads, the results are still printed in the order of the files,
+ *  followed by the time each board took and the overall throughput.
+ *  A board that takes longer than -timeout seconds or expands more than
+ *  -maxNodes boards is given up so it cannot stall the batch. The node
+ *  limit caps the memory of a search: by default it is the share of the
+ *  heap of one worker divided by what A* keeps per expanded board. A
+ *  board whose file can not be read or whose search fails is reported
+ *  with the reason, and the batch goes on.
+ *
+ *  % java-algs4 PuzzleChecker -batch -workers 4 -timeout 10 puzzle*.txt
+ *  puzzle00.txt: 0
+ *  ...
+ *  puzzle4x4-80.txt: gave up after 10.000 s
+ *  ...
+ *  puzzle00.txt: 0.412 ms
+ *  ...
+ *  Finished 120 of 121 boards in 18.274 s (6.621 boards/sec)
+ *
+ *  With -metrics (first, or after -batch) the counters of every search
+ *  (see SolverMetrics) are printed too.
+ *
  ******************************************************************************/
 
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class PuzzleChecker {
+    // heap A* needs per expanded board (frontier and reached boards), measured on 4x4 boards with a margin
+    private static final long BYTES_PER_EXPANDED_NODE = 256;
 
-    public static void main(String[] args) {
-
-        for (String filename : args) {
-            // read in the board specified in the filename
-            In in = new In(filename);
-            int n = in.readInt();
-            int[][] tiles = new int[n][n];
-            for (int i = 0; i < n; i++) {
-                for (int j = 0; j < n; j++) {
-                    tiles[i][j] = in.readInt();
-                }
-            }
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("-batch")) {
+            batch(args);
+            return;
+        }
+        boolean printMetrics = args.length > 0 && args[0].equals("-metrics");
 
+        for (int i = printMetrics ? 1 : 0; i < args.length; i++) {
             // solve the slider puzzle
-            Board initial = new Board(tiles);
+            Board initial = readBoard(args[i]);
             Solver solver = new Solver(initial);
             if (!solver.isSolvable())
                 StdOut.println("No solution possible");
@@ -56,7 +85,143 @@ public class PuzzleChecker {
                     StdOut.println(board);
                 StdOut.println("Minimum number of moves = " + solver.moves());
             }
+            if (printMetrics) StdOut.println(solver.metrics());
+        }
+
+    }
+
+    // solves the files given after the options on a pool of workers and prints the results in the order of the files
+    private static void batch(String[] args) throws InterruptedException {
+        int workers = Runtime.getRuntime().availableProcessors();
+        long timeoutMillis = Long.MAX_VALUE;
+        long maxNodes = 0;
+        boolean printMetrics = false;
+        List<String> filenames = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-metrics")) {
+                printMetrics = true;
+            } else if (args[i].equals("-workers")) {
+                workers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-timeout")) {
+                timeoutMillis = (long) (Double.parseDouble(args[++i]) * 1000);
+            } else if (args[i].equals("-maxNodes")) {
+                maxNodes = Long.parseLong(args[++i]);
+            } else {
+                filenames.add(args[i]);
+            }
+        }
+        if (maxNodes == 0) maxNodes = Math.max(1, Runtime.getRuntime().maxMemory() / workers / BYTES_PER_EXPANDED_NODE);
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        // interrupts the workers whose board ran out of time
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>();
+            for (String filename : filenames) {
+                final long timeout = timeoutMillis;
+                final long nodeLimit = maxNodes;
+                futures.add(pool.submit(() -> solve(filename, timeout, nodeLimit, timer)));
+            }
+            List<BatchResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                BatchResult result = get(futures.get(i), filenames.get(i));
+                results.add(result);
+                StdOut.println(result.name + ": " + result.outcome);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            int finished = 0;
+            for (BatchResult result : results) {
+                StdOut.printf(Locale.ROOT, "%s: %.3f ms%n", result.name, result.nanos / 1e6);
+                if (printMetrics && result.metrics != null) StdOut.println("  " + result.metrics);
+                if (result.finished) finished++;
+            }
+            StdOut.printf(Locale.ROOT, "Finished %d of %d boards in %.3f s (%.3f boards/sec)%n",
+                    finished, results.size(), seconds, results.size() / seconds);
+        } finally {
+            pool.shutdownNow();
+            timer.shutdownNow();
+        }
+    }
+
+    private static BatchResult solve(String filename, long timeoutMillis, long nodeLimit,
+                                     ScheduledExecutorService timer) {
+        String name = new File(filename).getName();
+        long start = System.nanoTime();
+        Thread worker = Thread.currentThread();
+        // the lock keeps the timer from interrupting the worker once it moved on to the next board
+        Object lock = new Object();
+        boolean[] done = new boolean[1];
+        ScheduledFuture<?> alarm = timeoutMillis == Long.MAX_VALUE ? null : timer.schedule(() -> {
+            synchronized (lock) {
+                if (!done[0]) worker.interrupt();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            Solver solver = new Solver(readBoard(filename), Solver.Algorithm.A_STAR, Heuristic.MANHATTAN,
+                    nodeLimit);
+            String outcome = solver.isSolvable() ? String.valueOf(solver.moves()) : "-1";
+            return new BatchResult(name, outcome, true, System.nanoTime() - start, solver.metrics());
+        } catch (CancellationException e) {
+            long nanos = System.nanoTime() - start;
+            String outcome = worker.isInterrupted()
+                    ? String.format(Locale.ROOT, "gave up after %.3f s", nanos / 1e9)
+                    : e.getMessage();
+            return new BatchResult(name, outcome, false, nanos, null);
+        } catch (RuntimeException e) {
+            return new BatchResult(name, "failed: " + e, false, System.nanoTime() - start, null);
+        } catch (OutOfMemoryError e) {
+            // the search's boards are unreachable once it threw, so the other boards can still be solved
+            return new BatchResult(name, "ran out of memory", false, System.nanoTime() - start, null);
+        } finally {
+            synchronized (lock) {
+                done[0] = true;
+            }
+            if (alarm != null) alarm.cancel(false);
+            // clear an interrupt that came too late to stop the search
+            Thread.interrupted();
+        }
+    }
+
+    // the result of a board, an error solve did not catch makes the board failed instead of ending the batch
+    private static BatchResult get(Future<BatchResult> future, String filename) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return new BatchResult(new File(filename).getName(), "failed: " + e.getCause(), false, 0, null);
         }
+    }
 
+    private static Board readBoard(String filename) {
+        // read in the board specified in the filename
+        In in = new In(filename);
+        int n = in.readInt();
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                tiles[i][j] = in.readInt();
+            }
+        }
+        return new Board(tiles);
+    }
+
+    // outcome of one board of a batch
+    private static final class BatchResult {
+        private final String name;
+        // number of moves, -1 if unsolvable, or why the board was given up
+        private final String outcome;
+        private final boolean finished;
+        private final long nanos;
+        // counters of the search, null if it was given up
+        private final SolverMetrics metrics;
+
+        BatchResult(String name, String outcome, boolean finished, long nanos, SolverMetrics metrics) {
+            this.name = name;
+            this.outcome = outcome;
+            this.finished = finished;
+            this.nanos = nanos;
+            this.metrics = metrics;
+        }
     }
 }
@@ -0,0 +1,212 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SolutionCache remembers shortest solutions so that repeated boards are not searched again. Every board of a cached
+ * solution is a key: a shortest path from the initial board passes through it, so the rest of that path is a shortest
+ * solution of the board too and boards met along solved paths are answered without a search.
+ * The cache holds at most capacity boards as keys, the least recently used board is evicted first. A solution is kept
+ * as its first board and its moves, 2 bits each (see MoveSequence), while any of its boards is cached, and the rest of
+ * it is replayed from the board looked up, so evicted boards are not kept alive by the solutions they were on. Boards
+ * are keyed by Board.equals, i.e. by their tiles.
+ * The solutions can be saved to a compact binary file (the first board, then one byte per move: the cell the empty
+ * space moves to) and loaded for a warm start. All methods are synchronized, one cache can serve several threads.
+ */
+public class SolutionCache {
+    private static final int MAGIC = 0x534F4C31; // "SOL1"
+
+    private final int capacity;
+    // board -> the cached solution it is on, in least recently used order
+    private final LinkedHashMap<Board, Position> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * creates an empty cache.
+     * Can throw IllegalArgumentException if capacity is not positive.
+     * @param capacity the largest number of boards to keep
+     */
+    public SolutionCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Board, Position>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Board, Position> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * a shortest solution of the board, from the cache or from a search with the given algorithm whose solution is
+     * then cached.
+     * Can throw IllegalArgumentException if the board or algorithm is null.
+     * @param initial the board to solve
+     * @param algorithm the search algorithm to use on a miss
+     * @return the boards of a shortest solution, null if the board is unsolvable
+     */
+    public List<Board> solve(Board initial, Solver.Algorithm algorithm) {
+        List<Board> cached = lookup(initial);
+        if (cached != null) return cached;
+        Solver solver = new Solver(initial, algorithm);
+        if (!solver.isSolvable()) return null;
+        List<Board> solution = new ArrayList<>();
+        for (Board board : solver.solution()) solution.add(board);
+        put(solution);
+        return Collections.unmodifiableList(solution);
+    }
+
+    /**
+     * the cached shortest solution of the board, counted as a hit or a miss.
+     * @param board the board to look up
+     * @return the boards from the board to the goal, null if the board is not cached
+     */
+    public synchronized List<Board> lookup(Board board) {
+        if (board == null) throw new IllegalArgumentException("Board must not be null");
+        Position position = entries.get(board);
+        if (position == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return Collections.unmodifiableList(position.moves.boardsFrom(board, position.index));
+    }
+
+    /**
+     * caches a shortest solution, every board on it becomes a key.
+     * Can throw IllegalArgumentException if the solution is null, empty, does not end with the goal board or
+     * consecutive boards are not neighbours.
+     * @param solution the boards from a board to the goal, as returned by Solver.solution()
+     */
+    public synchronized void put(List<Board> solution) {
+        if (solution == null || solution.isEmpty() || !solution.get(solution.size() - 1).isGoal()) {
+            throw new IllegalArgumentException("Not a solution");
+        }
+        MoveSequence moves = MoveSequence.of(solution);
+        // the end of the path first, so its start, the most valuable board, is the most recently used
+        for (int i = solution.size() - 1; i >= 0; i--) entries.put(solution.get(i), new Position(moves, i));
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    // number of boards in the cache
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * writes the cached solutions to a file, least recently used first so that load keeps their order. Only the
+     * part of a solution from its first cached board on is written.
+     * @param file the file to write
+     * @throws IOException if the file can not be written
+     */
+    public synchronized void save(Path file) throws IOException {
+        // first cached board of every solution, in the order its first board was met
+        Map<MoveSequence, Map.Entry<Board, Position>> starts = new IdentityHashMap<>();
+        List<MoveSequence> paths = new ArrayList<>();
+        for (Map.Entry<Board, Position> entry : entries.entrySet()) {
+            MoveSequence moves = entry.getValue().moves;
+            Map.Entry<Board, Position> start = starts.get(moves);
+            if (start == null) paths.add(moves);
+            if (start == null || entry.getValue().index < start.getValue().index) starts.put(moves, entry);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(paths.size());
+            for (MoveSequence moves : paths) {
+                Map.Entry<Board, Position> start = starts.get(moves);
+                List<Board> path = moves.boardsFrom(start.getKey(), start.getValue().index);
+                Board first = path.get(0);
+                int n = first.dimension();
+                // tiles and cells are written as single bytes
+                if (n * n > 256) throw new IllegalStateException("Can not save boards larger than 16x16");
+                out.writeByte(n);
+                out.writeInt(path.size() - 1);
+                for (int index = 0; index < n * n; index++) out.writeByte(first.tileAt(index));
+                for (int i = 1; i < path.size(); i++) out.writeByte(path.get(i).blankIndex());
+            }
+        }
+    }
+
+    /**
+     * reads the solutions written by save into a new cache.
+     * Can throw IllegalArgumentException if capacity is not positive or the file is not a solution cache.
+     * @param file the file to read
+     * @param capacity the largest number of boards to keep
+     * @return the cache holding the solutions of the file
+     * @throws IOException if the file can not be read
+     */
+    public static SolutionCache load(Path file, int capacity) throws IOException {
+        SolutionCache cache = new SolutionCache(capacity);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IllegalArgumentException("Not a solution cache: " + file);
+            int count = in.readInt();
+            for (int p = 0; p < count; p++) {
+                int n = in.readUnsignedByte();
+                int moves = in.readInt();
+                if (n < 2 || n > 16 || moves < 0) throw new IllegalArgumentException("Corrupt solution cache: " + file);
+                int[][] tiles = new int[n][n];
+                boolean[] seen = new boolean[n * n];
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < n; j++) {
+                        int tile = in.readUnsignedByte();
+                        if (tile >= n * n || seen[tile]) {
+                            throw new IllegalArgumentException("Corrupt solution cache: " + file);
+                        }
+                        seen[tile] = true;
+                        tiles[i][j] = tile;
+                    }
+                }
+                List<Board> solution = new ArrayList<>();
+                Board board = new Board(tiles);
+                solution.add(board);
+                for (int m = 0; m < moves; m++) {
+                    int target = in.readUnsignedByte();
+                    if (!isNextToBlank(board, target)) {
+                        throw new IllegalArgumentException("Corrupt solution cache: " + file);
+                    }
+                    board = board.moveBlankTo(target);
+                    solution.add(board);
+                }
+                cache.put(solution);
+            }
+        }
+        return cache;
+    }
+
+    // whether the empty space of the board can move to the cell
+    private static boolean isNextToBlank(Board board, int cell) {
+        int n = board.dimension();
+        int blank = board.blankIndex();
+        if (cell >= n * n) return false;
+        if (cell / n == blank / n) return Math.abs(cell - blank) == 1;
+        return Math.abs(cell - blank) == n;
+    }
+
+    // a board's place on a cached solution: the number of moves before it
+    private static final class Position {
+        private final MoveSequence moves;
+        private final int index;
+
+        Position(MoveSequence moves, int index) {
+            this.moves = moves;
+            this.index = index;
+        }
+    }
+}
@@ -1,18 +1,36 @@
-import edu.princeton.cs.algs4.MinPQ;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 
 /**
- * Solver class initialized with an initial board tries to find the goal board and also tires to find the goalboard for a twin board
- * if a twinboard has a solution than the initial board is deemed unsolvable
+ * Solver class initialized with an initial board tries to find the goal board, unsolvable boards are rejected up
+ * front by the inversion parity (see Board.isSolvable) so only a single search is run.
+ * The search algorithm is selected at construction, A* (default), IDA* (see IdaStarSearch), bidirectional A* (see
+ * BidirectionalSearch) or parallel A* (see ParallelAStarSearch), and so is the heuristic
+ * (Manhattan distance by default, see Heuristic).
  */
 public class Solver {
-    private SearchNode goalNode;
+    /**
+     * A_STAR keeps every generated node in a priority queue, IDA_STAR only keeps the current path so its memory is
+     * proportional to the solution depth, BIDIRECTIONAL searches from the initial and the goal board until they meet,
+     * PARALLEL_A_STAR spreads A* over worker threads, one per available processor by default (see ParallelAStarSearch).
+     */
+    public enum Algorithm { A_STAR, IDA_STAR, BIDIRECTIONAL, PARALLEL_A_STAR }
+
+    // checkLimits polls the interrupted flag once every this many expansions
+    private static final int INTERRUPT_CHECK_MASK = 1023;
+    // number of depths told apart among the nodes of equal priority, see queueKey
+    static final int DEPTH_RANGE = 128;
+
+    private final Heuristic heuristic;
+    private final long nodeLimit;
+    // moves of a shortest solution from the initial board to the goal board, null if unsolvable
+    private MoveSequence solution;
     private boolean isSolvable;
+    private final SolverMetrics metrics = new SolverMetrics();
+    // search nodes popped as duplicates, reused by createSearchNode
+    private SearchNode freeNodes;
 
     /**
      * find a solution to the initial board (using the A* algorithm)
@@ -20,35 +38,104 @@ public class Solver {
      * @param initial, a board to start the search from.
      */
     public Solver(Board initial) {
-        if (initial == null) throw new IllegalArgumentException("Initial Board must not be null");
-        Board twinBoard = initial.twin();
+        this(initial, Algorithm.A_STAR);
+    }
 
-        final Comparator<SearchNode> priorityFunction = Comparator.comparingInt(SearchNode::getPriority);
-        MinPQ<SearchNode> initialPQ = new MinPQ<>(priorityFunction);
-        MinPQ<SearchNode> twinPQ = new MinPQ<>(priorityFunction);
+    /**
+     * find a solution to the initial board using the given algorithm
+     * Can throw IllegalArgumentException if initial board or algorithm is null.
+     * @param initial, a board to start the search from.
+     * @param algorithm, the search algorithm to use.
+     */
+    public Solver(Board initial, Algorithm algorithm) {
+        this(initial, algorithm, Heuristic.MANHATTAN);
+    }
+
+    /**
+     * find a solution to the initial board using the given algorithm guided by the given heuristic
+     * Can throw IllegalArgumentException if initial board, algorithm or heuristic is null.
+     * @param initial, a board to start the search from.
+     * @param algorithm, the search algorithm to use.
+     * @param heuristic, an admissible and consistent estimate of the moves left.
+     */
+    public Solver(Board initial, Algorithm algorithm, Heuristic heuristic) {
+        this(initial, algorithm, heuristic, Long.MAX_VALUE);
+    }
 
-        final SearchNode initialSearchNode = createManhattanSearchNode(null, initial, 0);
-        final SearchNode initialTwinSearchNode = createManhattanSearchNode(null, twinBoard, 0);
-        initialPQ.insert(initialSearchNode);
-        twinPQ.insert(initialTwinSearchNode);
-        while (!initialPQ.isEmpty()) {
-            final SearchNode minNode = initialPQ.delMin();
-            final SearchNode twinMinNode = twinPQ.delMin();
+    /**
+     * find a solution to the initial board using the given algorithm guided by the given heuristic, giving up once
+     * more than nodeLimit boards are expanded (which bounds the memory of A* searches) or the calling thread is
+     * interrupted.
+     * Can throw IllegalArgumentException if initial board, algorithm or heuristic is null or nodeLimit is negative.
+     * Can throw CancellationException if the search gives up.
+     * @param initial, a board to start the search from.
+     * @param algorithm, the search algorithm to use.
+     * @param heuristic, an admissible and consistent estimate of the moves left.
+     * @param nodeLimit, the largest number of boards to expand.
+     */
+    public Solver(Board initial, Algorithm algorithm, Heuristic heuristic, long nodeLimit) {
+        this(initial, algorithm, heuristic, nodeLimit, Runtime.getRuntime().availableProcessors());
+    }
 
-            if (minNode.board.isGoal()) {
-                goalNode = minNode;
-                isSolvable = true;
-                break;
+    /**
+     * find a solution as above, PARALLEL_A_STAR running workers threads so its scaling can be measured, the other
+     * algorithms ignore workers.
+     * Can throw IllegalArgumentException if workers is not positive.
+     */
+    Solver(Board initial, Algorithm algorithm, Heuristic heuristic, long nodeLimit, int workers) {
+        if (initial == null) throw new IllegalArgumentException("Initial Board must not be null");
+        if (algorithm == null) throw new IllegalArgumentException("Algorithm must not be null");
+        if (heuristic == null) throw new IllegalArgumentException("Heuristic must not be null");
+        if (nodeLimit < 0) throw new IllegalArgumentException("Node limit must not be negative");
+        if (workers < 1) throw new IllegalArgumentException("Workers must be positive");
+        long start = System.nanoTime();
+        // counts every estimate, whichever search asks for it
+        this.heuristic = board -> {
+            metrics.heuristicEvaluations++;
+            return heuristic.estimate(board);
+        };
+        this.nodeLimit = nodeLimit;
+        isSolvable = initial.isSolvable();
+        if (isSolvable) {
+            if (algorithm == Algorithm.IDA_STAR) {
+                solution = MoveSequence.of(new IdaStarSearch(initial, this.heuristic, nodeLimit, metrics).solve());
+            } else if (algorithm == Algorithm.BIDIRECTIONAL) {
+                solution = MoveSequence.of(
+                        new BidirectionalSearch(initial, this.heuristic, nodeLimit, metrics).solve());
+            } else if (algorithm == Algorithm.PARALLEL_A_STAR) {
+                // the workers count their own heuristic evaluations, the counting wrapper is not thread safe
+                solution = MoveSequence.of(
+                        new ParallelAStarSearch(initial, heuristic, nodeLimit, metrics, workers).solve());
+            } else {
+                solveAStar(initial);
+            }
+        }
+        metrics.wallNanos = System.nanoTime() - start;
+    }
+
+    private void solveAStar(Board initial) {
+        BucketQueue<SearchNode> pq = new BucketQueue<>();
+        SearchNode start = createSearchNode(null, initial, 0);
+        pq.insert(start, queueKey(start.priority, start.moves));
+        // boards already expanded, a board is expanded at most once since the heuristic is consistent
+        final Set<Board> closed = new HashSet<>();
+        while (!pq.isEmpty()) {
+            metrics.frontier(pq.size());
+            final SearchNode minNode = pq.delMin();
+            if (!closed.add(minNode.board)) {
+                // a duplicate of an expanded board, nothing links to it
+                metrics.duplicatesPruned++;
+                recycle(minNode);
+                continue;
             }
+            checkLimits(++metrics.expandedNodes, nodeLimit);
 
-            if (twinMinNode.board.isGoal()) {
-                goalNode = null;
-                isSolvable = false;
+            if (minNode.board.isGoal()) {
+                solution = pathTo(initial, minNode);
                 break;
             }
 
-            insertNeighboursFor(initialPQ, minNode);
-            insertNeighboursFor(twinPQ, twinMinNode);
+            insertNeighboursFor(pq, minNode, closed);
         }
     }
 
@@ -59,21 +146,27 @@ public class Solver {
 
     // min number of moves to solve initial board
     public int moves() {
-        return goalNode != null ? goalNode.moves : -1;
+        return solution != null ? solution.length() : -1;
     }
 
-    // sequence of boards in a shortest solution
+    // sequence of boards in a shortest solution, generated from the moves while iterating
     public Iterable<Board> solution() {
-        if (goalNode == null) return null;
-        SearchNode node = goalNode;
-        List<Board> boards = new ArrayList<>();
-        boards.add(node.board);
-        while (node.previousNode != null) {
-            boards.add(node.previousNode.board);
-            node = node.previousNode;
-        }
-        Collections.reverse(boards);
-        return boards;
+        return solution;
+    }
+
+    // number of boards expanded by the search (see metrics)
+    public int expandedNodes() {
+        return (int) metrics.expandedNodes;
+    }
+
+    // largest number of search nodes waiting in the priority queue (see metrics)
+    public int maxQueueSize() {
+        return (int) metrics.peakFrontier;
+    }
+
+    // counters and timing of the search
+    public SolverMetrics metrics() {
+        return metrics;
     }
 
     // test client (see below)
@@ -82,37 +175,76 @@ public class Solver {
     }
 
 
-    private void insertNeighboursFor(MinPQ<SearchNode> pq, SearchNode minNode) {
-        for (Board neighbour : minNode.board.neighbors()) {
-            if (minNode.previousNode == null) {
-                pq.insert(createManhattanSearchNode(minNode, neighbour, minNode.moves + 1));
-            } else if (!neighbour.equals(minNode.previousNode.board)) {
-                pq.insert(createManhattanSearchNode(minNode, neighbour, minNode.moves + 1));
-            }
+    /**
+     * gives up a search that expanded more than nodeLimit boards or whose thread was interrupted, the flag is only
+     * polled every few expansions to keep the check off the hot path.
+     */
+    static void checkLimits(long expandedNodes, long nodeLimit) {
+        if (expandedNodes > nodeLimit) {
+            throw new CancellationException("Gave up after expanding " + nodeLimit + " boards");
+        }
+        if ((expandedNodes & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Gave up, interrupted after expanding " + expandedNodes + " boards");
         }
     }
 
-    private SearchNode createManhattanSearchNode(SearchNode minNode, Board neighbour, int moves) {
-        return new SearchNode(neighbour, moves, minNode);
+    // moves along the chain of nodes, set from the goal backwards since every node knows its depth
+    private MoveSequence pathTo(Board initial, SearchNode goalNode) {
+        MoveSequence moves = new MoveSequence(initial, goalNode.moves);
+        for (SearchNode node = goalNode; node.previousNode != null; node = node.previousNode) {
+            moves.set(node.moves - 1, node.previousNode.board, node.board);
+        }
+        return moves;
     }
 
-    private static class SearchNode {
-        private final Board board;
-        private final int moves;
-        private final SearchNode previousNode;
-        private final int priority;
+    private void insertNeighboursFor(BucketQueue<SearchNode> pq, SearchNode minNode, Set<Board> closed) {
+        for (Board neighbour : minNode.board.neighbors()) {
+            if (closed.contains(neighbour)) {
+                metrics.duplicatesPruned++;
+            } else {
+                SearchNode node = createSearchNode(minNode, neighbour, minNode.moves + 1);
+                pq.insert(node, queueKey(node.priority, node.moves));
+                metrics.generatedNodes++;
+            }
+        }
+    }
 
-        SearchNode(Board board, int moves, SearchNode previousNode) {
+    /**
+     * bucket of a node in the queue: ordered by priority, then deeper nodes first (they are closer to the goal for the
+     * same priority), then last in first out. Depths beyond the range share the deepest rank.
+     */
+    static int queueKey(int priority, int moves) {
+        return priority * DEPTH_RANGE + DEPTH_RANGE - 1 - Math.min(moves, DEPTH_RANGE - 1);
+    }
 
-            this.board = board;
-            this.moves = moves;
-            this.previousNode = previousNode;
-            this.priority = board.manhattan() + moves;
+    // takes a node from the pool of recycled nodes, or allocates one if the pool is empty
+    private SearchNode createSearchNode(SearchNode minNode, Board neighbour, int moves) {
+        SearchNode node = freeNodes;
+        if (node == null) {
+            node = new SearchNode();
+        } else {
+            freeNodes = node.previousNode;
         }
+        node.board = neighbour;
+        node.moves = moves;
+        node.previousNode = minNode;
+        node.priority = heuristic.estimate(neighbour) + moves;
+        return node;
+    }
 
-        private int getPriority() {
-            return priority;
-        }
+    // returns a node no other node links to into the pool, the pool is chained through previousNode
+    private void recycle(SearchNode node) {
+        node.board = null;
+        node.previousNode = freeNodes;
+        freeNodes = node;
+    }
+
+    // mutable so that nodes can be recycled, see createSearchNode
+    private static class SearchNode {
+        private Board board;
+        private int moves;
+        private SearchNode previousNode;
+        private int priority;
     }
 
 
@@ -0,0 +1,67 @@
+import java.util.Locale;
+
+/**
+ * SolverMetrics are the counters of one Solver run, to tell why a board was slow and to compare heuristics and
+ * algorithms without a profiler. The searches count into the package-private fields while they run, outside the
+ * package the metrics are read only.
+ * IDA* keeps no frontier, for it the peak frontier is the deepest path it held.
+ */
+public final class SolverMetrics {
+    // boards taken off the frontier and expanded
+    long expandedNodes;
+    // search nodes created for the neighbours of expanded boards
+    long generatedNodes;
+    // neighbours and frontier entries dropped because the board was already expanded or reached more cheaply
+    long duplicatesPruned;
+    // largest number of nodes waiting in the frontier at once
+    long peakFrontier;
+    // calls of the heuristic
+    long heuristicEvaluations;
+    long wallNanos;
+
+    SolverMetrics() {
+    }
+
+    public long expandedNodes() {
+        return expandedNodes;
+    }
+
+    public long generatedNodes() {
+        return generatedNodes;
+    }
+
+    public long duplicatesPruned() {
+        return duplicatesPruned;
+    }
+
+    public long peakFrontier() {
+        return peakFrontier;
+    }
+
+    public long heuristicEvaluations() {
+        return heuristicEvaluations;
+    }
+
+    // time the solver took, solvability check included
+    public long wallNanos() {
+        return wallNanos;
+    }
+
+    // expanded boards per second of wall time
+    public double nodesPerSecond() {
+        return wallNanos == 0 ? 0 : expandedNodes * 1e9 / wallNanos;
+    }
+
+    // track the largest frontier seen so far
+    void frontier(long size) {
+        if (size > peakFrontier) peakFrontier = size;
+    }
+
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "expanded=%d generated=%d duplicatesPruned=%d peakFrontier=%d heuristicEvaluations=%d "
+                        + "wallTime=%.3fms nodesPerSecond=%.0f",
+                expandedNodes, generatedNodes, duplicatesPruned, peakFrontier, heuristicEvaluations,
+                wallNanos / 1e6, nodesPerSecond());
+    }
+}
@@ -0,0 +1,316 @@
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+import edu.princeton.cs.algs4.StdDraw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ArrayKdTree is the 2d-tree of KdTree without node objects: node i is the coordinates xs[i], ys[i] and the indices
+ * lb[i], rt[i] of its children, 24 bytes per point instead of a Node, a Point2D and a RectHV. The region of a node is
+ * not stored, queries narrow it down from the whole plane on their way from the root.
+ * Inserted points take the next free index, bulk loaded points are laid out in preorder, so that a node is followed
+ * by its left/bottom subtree. As in KdTree even levels split by x, odd levels by y, and points with a smaller
+ * coordinate go to the left/bottom subtree. Unlike KdTree the tree is a set, equal points are kept once.
+ * Queries keep all their state on the call stack, so any number of threads can query a tree concurrently as long as
+ * no insert runs at the same time.
+ */
+public class ArrayKdTree {
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] xs;
+    private double[] ys;
+    // children of every node, NONE if there is none
+    private int[] lb;
+    private int[] rt;
+    // number of nodes, node 0 is the root
+    private int size;
+
+    public ArrayKdTree() {
+        allocate(INITIAL_CAPACITY);
+    }                              // construct an empty set of points
+
+    /**
+     * bulk loads the points into a balanced tree, every node holds the median of its points by the coordinate of its
+     * level. The arrays are sized to the points, so the tree takes 24 bytes per distinct point.
+     * Can throw IllegalArgumentException if points or one of them is null.
+     * @param points the points of the tree, not modified
+     */
+    public ArrayKdTree(Point2D[] points) {
+        if (points == null) throw new IllegalArgumentException("Points must not be null");
+        double[] x = new double[points.length];
+        double[] y = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null) throw new IllegalArgumentException("Point must not be null");
+            x[i] = points[i].x();
+            y[i] = points[i].y();
+        }
+        allocate(points.length);
+        if (points.length > 0) build(x, y, 0, points.length - 1, true);
+        if (size < points.length) trim();
+    }
+
+    public ArrayKdTree(String filename) {
+        this(readPoints(filename));
+    }                              // bulk load the points of a file (x y pairs) into a balanced tree
+
+    public boolean isEmpty() {
+        return size == 0;
+    }                      // is the set empty?
+
+    public int size() {
+        return size;
+    }                        // number of points in the set
+
+    public void insert(Point2D p) {
+        if (p == null) throw new IllegalArgumentException("Point must not be null");
+        double x = p.x();
+        double y = p.y();
+        if (size == 0) {
+            add(x, y);
+            return;
+        }
+        int node = 0;
+        boolean vertical = true;
+        while (true) {
+            if (xs[node] == x && ys[node] == y) return;
+            boolean lower = vertical ? x < xs[node] : y < ys[node];
+            int child = lower ? lb[node] : rt[node];
+            if (child == NONE) {
+                // add can replace the arrays, index them only after it
+                child = add(x, y);
+                if (lower) lb[node] = child;
+                else rt[node] = child;
+                return;
+            }
+            node = child;
+            vertical = !vertical;
+        }
+    }              // add the point to the set (if it is not already in the set)
+
+    public boolean contains(Point2D p) {
+        if (p == null) throw new IllegalArgumentException("Point must not be null");
+        double x = p.x();
+        double y = p.y();
+        boolean vertical = true;
+        for (int node = size == 0 ? NONE : 0; node != NONE; vertical = !vertical) {
+            if (xs[node] == x && ys[node] == y) return true;
+            if (vertical) node = x < xs[node] ? lb[node] : rt[node];
+            else node = y < ys[node] ? lb[node] : rt[node];
+        }
+        return false;
+    }       // does the set contain point p?
+
+    public void draw() {
+        if (size > 0) draw(0, true, 0, 0, 1, 1);
+    }                         // draw all points to standard draw
+
+    // draws a subtree and the splitting lines clipped to its region
+    private void draw(int node, boolean vertical, double xmin, double ymin, double xmax, double ymax) {
+        if (node == NONE) return;
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.setPenRadius(0.01);
+        StdDraw.point(xs[node], ys[node]);
+        StdDraw.setPenRadius();
+        if (vertical) {
+            double x = Math.max(xmin, Math.min(xmax, xs[node]));
+            StdDraw.setPenColor(StdDraw.RED);
+            StdDraw.line(x, ymin, x, ymax);
+            draw(lb[node], false, xmin, ymin, x, ymax);
+            draw(rt[node], false, x, ymin, xmax, ymax);
+        } else {
+            double y = Math.max(ymin, Math.min(ymax, ys[node]));
+            StdDraw.setPenColor(StdDraw.BLUE);
+            StdDraw.line(xmin, y, xmax, y);
+            draw(lb[node], true, xmin, ymin, xmax, y);
+            draw(rt[node], true, xmin, y, xmax, ymax);
+        }
+    }
+
+    public Iterable<Point2D> range(RectHV rect) {
+        List<Point2D> pointsInRect = new ArrayList<>();
+        range(rect, pointsInRect::add);
+        return pointsInRect;
+    }             // all points that are inside the rectangle (or on the boundary)
+
+    /**
+     * passes every point inside the rectangle (or on the boundary) to the sink, without collecting them. The points
+     * are created as they are found, the tree holds no Point2D.
+     * Can throw IllegalArgumentException if the rectangle or the sink is null.
+     * @param rect the query rectangle
+     * @param sink receives the points in the rectangle
+     */
+    public void range(RectHV rect, Consumer<? super Point2D> sink) {
+        if (rect == null) throw new IllegalArgumentException("Rectangle must not be null");
+        if (sink == null) throw new IllegalArgumentException("Sink must not be null");
+        if (size > 0) range(0, true, rect.xmin(), rect.ymin(), rect.xmax(), rect.ymax(), sink);
+    }
+
+    // a subtree is only visited if the rectangle reaches its side of the splitting line
+    private void range(int node, boolean vertical, double xmin, double ymin, double xmax, double ymax,
+                       Consumer<? super Point2D> sink) {
+        if (node == NONE) return;
+        double x = xs[node];
+        double y = ys[node];
+        double split = vertical ? x : y;
+        double min = vertical ? xmin : ymin;
+        double max = vertical ? xmax : ymax;
+        if (min < split) range(lb[node], !vertical, xmin, ymin, xmax, ymax, sink);
+        if (x >= xmin && x <= xmax && y >= ymin && y <= ymax) sink.accept(new Point2D(x, y));
+        if (max >= split) range(rt[node], !vertical, xmin, ymin, xmax, ymax, sink);
+    }
+
+    /**
+     * a nearest neighbour of the point. Subtrees are visited the side of the point first and skipped once their
+     * region, narrowed down on the way from the root, is not closer than the nearest point found so far.
+     * Can throw IllegalArgumentException if p is null.
+     * @param p the query point
+     * @return a nearest point of the set, null if the set is empty
+     */
+    public Point2D nearest(Point2D p) {
+        if (p == null) throw new IllegalArgumentException("Point must not be null");
+        if (size == 0) return null;
+        double inf = Double.POSITIVE_INFINITY;
+        int nearest = nearest(0, true, p.x(), p.y(), -inf, -inf, inf, inf, 0);
+        return new Point2D(xs[nearest], ys[nearest]);
+    }             // a nearest neighbor in the set to point p; null if the set is empty
+
+    // the nearest of best and the points of the subtree covering the region
+    private int nearest(int node, boolean vertical, double px, double py,
+                        double xmin, double ymin, double xmax, double ymax, int best) {
+        if (node == NONE) return best;
+        double bestDistance = distanceSquared(best, px, py);
+        double dx = px < xmin ? xmin - px : px > xmax ? px - xmax : 0;
+        double dy = py < ymin ? ymin - py : py > ymax ? py - ymax : 0;
+        if (dx * dx + dy * dy >= bestDistance) return best;
+        if (distanceSquared(node, px, py) < bestDistance) best = node;
+        if (vertical) {
+            double x = xs[node];
+            if (px < x) {
+                best = nearest(lb[node], false, px, py, xmin, ymin, x, ymax, best);
+                return nearest(rt[node], false, px, py, x, ymin, xmax, ymax, best);
+            }
+            best = nearest(rt[node], false, px, py, x, ymin, xmax, ymax, best);
+            return nearest(lb[node], false, px, py, xmin, ymin, x, ymax, best);
+        }
+        double y = ys[node];
+        if (py < y) {
+            best = nearest(lb[node], true, px, py, xmin, ymin, xmax, y, best);
+            return nearest(rt[node], true, px, py, xmin, y, xmax, ymax, best);
+        }
+        best = nearest(rt[node], true, px, py, xmin, y, xmax, ymax, best);
+        return nearest(lb[node], true, px, py, xmin, ymin, xmax, y, best);
+    }
+
+    private double distanceSquared(int node, double px, double py) {
+        double dx = xs[node] - px;
+        double dy = ys[node] - py;
+        return dx * dx + dy * dy;
+    }
+
+    private void allocate(int capacity) {
+        xs = new double[capacity];
+        ys = new double[capacity];
+        lb = new int[capacity];
+        rt = new int[capacity];
+    }
+
+    // shrinks the arrays to the nodes
+    private void trim() {
+        xs = Arrays.copyOf(xs, size);
+        ys = Arrays.copyOf(ys, size);
+        lb = Arrays.copyOf(lb, size);
+        rt = Arrays.copyOf(rt, size);
+    }
+
+    // appends a leaf node, growing the arrays if they are full, and returns its index
+    private int add(double x, double y) {
+        if (size == xs.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, 2 * size);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            lb = Arrays.copyOf(lb, capacity);
+            rt = Arrays.copyOf(rt, capacity);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        lb[size] = NONE;
+        rt[size] = NONE;
+        return size++;
+    }
+
+    // appends the subtree of the points x[lo..hi], y[lo..hi] in preorder and returns the index of its root, copies of
+    // a point are left out
+    private int build(double[] x, double[] y, int lo, int hi, boolean vertical) {
+        double[] keys = vertical ? x : y;
+        double[] others = vertical ? y : x;
+        int median = select(keys, others, lo, hi, lo + (hi - lo) / 2);
+        // copies of the median have the same key, so they follow it in the points not smaller than it
+        int end = median;
+        while (end < hi && keys[end + 1] == keys[median]) end++;
+        for (int i = median + 1; i <= end; ) {
+            if (others[i] != others[median]) {
+                i++;
+                continue;
+            }
+            swap(keys, others, i, end);
+            swap(keys, others, end--, hi--);
+        }
+        int node = add(x[median], y[median]);
+        if (lo < median) lb[node] = build(x, y, lo, median - 1, !vertical);
+        if (median < hi) rt[node] = build(x, y, median + 1, hi, !vertical);
+        return node;
+    }
+
+    /**
+     * quickselect with a 3-way partition on keys, moving the other coordinate along: rearranges [lo..hi] so that the
+     * points before the returned index have a smaller key than the k-th smallest and the others, starting with the
+     * returned index, are not smaller. The returned index is the first point equal to the k-th smallest, so it is at
+     * most k.
+     */
+    private static int select(double[] keys, double[] others, int lo, int hi, int k) {
+        while (true) {
+            double pivot = medianOfThree(keys[lo], keys[lo + (hi - lo) / 2], keys[hi]);
+            int lt = lo;
+            int i = lo;
+            int gt = hi;
+            while (i <= gt) {
+                double c = keys[i];
+                if (c < pivot) swap(keys, others, lt++, i++);
+                else if (c > pivot) swap(keys, others, i, gt--);
+                else i++;
+            }
+            if (k < lt) hi = lt - 1;
+            else if (k > gt) lo = gt + 1;
+            else return lt;
+        }
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static void swap(double[] keys, double[] others, int i, int j) {
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        double other = others[i];
+        others[i] = others[j];
+        others[j] = other;
+    }
+
+    private static Point2D[] readPoints(String filename) {
+        In in = new In(filename);
+        List<Point2D> points = new ArrayList<>();
+        while (!in.isEmpty()) {
+            double x = in.readDouble();
+            double y = in.readDouble();
+            points.add(new Point2D(x, y));
+        }
+        return points.toArray(new Point2D[0]);
+    }
+}
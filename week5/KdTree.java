@@ -1,11 +1,29 @@
+import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.Point2D;
 import edu.princeton.cs.algs4.RectHV;
-import edu.princeton.cs.algs4.Stack;
 import edu.princeton.cs.algs4.StdDraw;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * KdTree is a 2d-tree of points in the unit square, even levels split by x, odd levels by y, points with a smaller
+ * coordinate go to the left/bottom subtree and the others to the right/top subtree. Every node keeps the region of
+ * the unit square its subtree covers.
+ * The tree is either grown by insert, in input order, or bulk loaded balanced from all points at once.
+ * Queries keep all their state on the call stack, so any number of threads can query a tree concurrently as long as
+ * no insert runs at the same time.
+ */
 public class KdTree {
+    private static final RectHV UNIT_SQUARE = new RectHV(0, 0, 1, 1);
+    // point ranges smaller than this are built by the current task instead of being forked
+    private static final int PARALLEL_THRESHOLD = 8192;
+
     private Node root;
-    Stack<Point2D> pointsInRect;
 
     private static class Node {
         private final Point2D p;      // the point
@@ -25,6 +43,36 @@ public class KdTree {
     public KdTree() {
     }                              // construct an empty set of points
 
+    public KdTree(Point2D[] points) {
+        this(points, false);
+    }                              // bulk load the points into a balanced tree
+
+    /**
+     * bulk loads the points into a balanced tree: every node holds the median of its points by the coordinate of its
+     * level, so the depth is O(log n). Points sharing the median's coordinate go to its right/top subtree as with
+     * insert, so many equal coordinates can make a side deeper.
+     * Can throw IllegalArgumentException if points or one of them is null.
+     * @param points the points of the tree, not modified
+     * @param parallel whether subtrees of large point ranges are built concurrently in the common fork-join pool
+     */
+    public KdTree(Point2D[] points, boolean parallel) {
+        if (points == null) throw new IllegalArgumentException("Points must not be null");
+        Point2D[] copy = points.clone();
+        for (Point2D p : copy) {
+            if (p == null) throw new IllegalArgumentException("Point must not be null");
+        }
+        if (copy.length == 0) return;
+        if (parallel) {
+            root = ForkJoinPool.commonPool().invoke(new BuildTask(copy, 0, copy.length - 1, true, UNIT_SQUARE));
+        } else {
+            root = build(copy, 0, copy.length - 1, true, UNIT_SQUARE);
+        }
+    }
+
+    public KdTree(String filename) {
+        this(readPoints(filename), true);
+    }                              // bulk load the points of a file (x y pairs) into a balanced tree
+
     public boolean isEmpty() {
         return size() == 0;
     }                      // is the set empty?
@@ -39,22 +87,22 @@ public class KdTree {
     }
 
     public void insert(Point2D p) {
-        RectHV rootRect = new RectHV(0, 0, p.x(), 1);
-        root = insert(root, p, rootRect);
+        root = insert(root, p, root == null ? UNIT_SQUARE : root.rect);
     }              // add the point to the set (if it is not already in the set)
 
-    private Node insert(Node node, Point2D p, RectHV rect) {
-        if (node == null) return new Node(p, rect, 1);
-        if (p.x() < node.p.x()) node.lb = insertY(node.lb, p, new RectHV(node.rect.xmin(), node.rect.ymin(), node.rect.xmax(), p.y()));
-        else if (p.x() >= node.p.x() || p.y() != node.p.y()) node.rt = insertY(node.rt, p, new RectHV(node.rect.xmax(), node.rect.ymin(), 1, p.y()));
+    // region is only used to create a new node, the region of a child is computed as in bulk loading
+    private Node insert(Node node, Point2D p, RectHV region) {
+        if (node == null) return new Node(p, region, 1);
+        if (p.x() < node.p.x()) node.lb = insertY(node.lb, p, node.lb == null ? lower(node.rect, node.p, true) : node.lb.rect);
+        else node.rt = insertY(node.rt, p, node.rt == null ? upper(node.rect, node.p, true) : node.rt.rect);
         node.size = 1 + size(node.lb) + size(node.rt);
         return node;
     }
 
-    private Node insertY(Node node, Point2D p, RectHV rect) {
-        if (node == null) return new Node(p, rect, 1);
-        if (p.y() < node.p.y()) node.lb = insert(node.lb, p, new RectHV(node.rect.xmin(), node.rect.ymin(), p.x(), node.rect.ymax()));
-        else if (p.y() >= node.p.y() || p.x() != node.p.x()) node.rt = insert(node.rt, p, new RectHV(node.rect.xmin(), node.rect.ymax(), p.x(), 1));
+    private Node insertY(Node node, Point2D p, RectHV region) {
+        if (node == null) return new Node(p, region, 1);
+        if (p.y() < node.p.y()) node.lb = insert(node.lb, p, node.lb == null ? lower(node.rect, node.p, false) : node.lb.rect);
+        else node.rt = insert(node.rt, p, node.rt == null ? upper(node.rect, node.p, false) : node.rt.rect);
         node.size = 1 + size(node.lb) + size(node.rt);
         return node;
     }
@@ -111,44 +159,310 @@ public class KdTree {
     }
 
     public Iterable<Point2D> range(RectHV rect) {
-        pointsInRect = new Stack<>();
-        traverseInOrder(root, rect);
+        List<Point2D> pointsInRect = new ArrayList<>();
+        range(rect, pointsInRect::add);
         return pointsInRect;
     }             // all points that are inside the rectangle (or on the boundary)
 
+    /**
+     * passes every point inside the rectangle (or on the boundary) to the sink, without collecting them.
+     * Can throw IllegalArgumentException if the rectangle or the sink is null.
+     * @param rect the query rectangle
+     * @param sink receives the points in the rectangle
+     */
+    public void range(RectHV rect, Consumer<? super Point2D> sink) {
+        if (rect == null) throw new IllegalArgumentException("Rectangle must not be null");
+        if (sink == null) throw new IllegalArgumentException("Sink must not be null");
+        rangeX(root, rect, sink);
+    }
+
+    // a subtree is only visited if the rectangle reaches its side of the splitting line
+    private void rangeX(Node node, RectHV rect, Consumer<? super Point2D> sink) {
+        if (node == null) return;
+        double x = node.p.x();
+        if (rect.xmin() < x) rangeY(node.lb, rect, sink);
+        if (rect.contains(node.p)) sink.accept(node.p);
+        if (rect.xmax() >= x) rangeY(node.rt, rect, sink);
+    }
 
-    private void traverseInOrder(Node node, RectHV rect) {
-        if (node != null) {
-            traverseInOrder(node.lb, rect);
-            if (rect.contains(node.p)) {
-                pointsInRect.push(node.p);
-            }
-            traverseInOrder(node.rt, rect);
-        }
+    private void rangeY(Node node, RectHV rect, Consumer<? super Point2D> sink) {
+        if (node == null) return;
+        double y = node.p.y();
+        if (rect.ymin() < y) rangeX(node.lb, rect, sink);
+        if (rect.contains(node.p)) sink.accept(node.p);
+        if (rect.ymax() >= y) rangeX(node.rt, rect, sink);
     }
 
+    /**
+     * a nearest neighbour of the point. The child on the point's side of the splitting line is visited first, the
+     * other one only if the splitting line is closer than the nearest point found so far. Nothing is allocated.
+     * Can throw IllegalArgumentException if p is null.
+     * @param p the query point
+     * @return a nearest point of the set, null if the set is empty
+     */
     public Point2D nearest(Point2D p) {
-        final Stack<Point2D> closest = new Stack<>();
-        closest.push(root.p);
-        traverseInOrderNearest(root, p, closest);
-        System.out.println(closest.size());
-        return closest.pop();
+        if (p == null) throw new IllegalArgumentException("Point must not be null");
+        if (root == null) return null;
+        return nearest(root, p.x(), p.y(), true, root).p;
     }             // a nearest neighbor in the set to point p; null if the set is empty
 
+    // the nearest of best and the nodes of the subtree
+    private static Node nearest(Node node, double px, double py, boolean vertical, Node best) {
+        if (node == null) return best;
+        double bestDistance = distanceSquared(best.p, px, py);
+        double distance = distanceSquared(node.p, px, py);
+        if (distance < bestDistance) {
+            best = node;
+            bestDistance = distance;
+        }
+        double offset = vertical ? px - node.p.x() : py - node.p.y();
+        Node near = offset < 0 ? node.lb : node.rt;
+        Node far = offset < 0 ? node.rt : node.lb;
+        if (near != null) {
+            best = nearest(near, px, py, !vertical, best);
+            bestDistance = distanceSquared(best.p, px, py);
+        }
+        if (far != null && offset * offset < bestDistance) best = nearest(far, px, py, !vertical, best);
+        return best;
+    }
+
+    private static double distanceSquared(Point2D p, double x, double y) {
+        double dx = p.x() - x;
+        double dy = p.y() - y;
+        return dx * dx + dy * dy;
+    }
 
-    private void traverseInOrderNearest(Node node, Point2D p, Stack<Point2D> closest) {
-        if (node == null) return;
-        if (node.p.distanceSquaredTo(p) < p.distanceSquaredTo(closest.peek())) {
-            closest.push(node.p);
+    /**
+     * the k points nearest to p, nearest first. Subtrees are visited the side of p first and skipped once their
+     * region is farther than the k-th nearest point found so far.
+     * Can throw IllegalArgumentException if p is null or k is not positive.
+     * @param p the query point
+     * @param k the number of points to find
+     * @return the k nearest points ordered by distance to p, all points if the set has fewer
+     */
+    public Iterable<Point2D> nearest(Point2D p, int k) {
+        if (p == null) throw new IllegalArgumentException("Point must not be null");
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        Candidates candidates = new Candidates(Math.min(k, size()), Double.POSITIVE_INFINITY);
+        collect(root, p, true, candidates);
+        return candidates.sorted();
+    }
+
+    /**
+     * the points at distance at most r from p, nearest first. Subtrees whose region is farther than r are skipped.
+     * Can throw IllegalArgumentException if p is null or r is negative.
+     * @param p the query point
+     * @param r the radius
+     * @return the points within the radius ordered by distance to p
+     */
+    public Iterable<Point2D> withinRadius(Point2D p, double r) {
+        if (p == null) throw new IllegalArgumentException("Point must not be null");
+        if (!(r >= 0)) throw new IllegalArgumentException("Radius must not be negative");
+        Candidates candidates = new Candidates(size(), r * r);
+        collect(root, p, true, candidates);
+        return candidates.sorted();
+    }
+
+    // offers the points of the subtree that can still be candidates, the side of p first
+    private static void collect(Node node, Point2D p, boolean vertical, Candidates candidates) {
+        if (node == null || node.rect.distanceSquaredTo(p) > candidates.bound()) return;
+        candidates.offer(node.p, node.p.distanceSquaredTo(p));
+        boolean lower = vertical ? p.x() < node.p.x() : p.y() < node.p.y();
+        collect(lower ? node.lb : node.rt, p, !vertical, candidates);
+        collect(lower ? node.rt : node.lb, p, !vertical, candidates);
+    }
+
+    private static Point2D[] readPoints(String filename) {
+        In in = new In(filename);
+        List<Point2D> points = new ArrayList<>();
+        while (!in.isEmpty()) {
+            double x = in.readDouble();
+            double y = in.readDouble();
+            points.add(new Point2D(x, y));
         }
-        if (node.lb != null && closest.peek().distanceSquaredTo(p) > node.lb.rect.distanceSquaredTo(p)) {
-            traverseInOrderNearest(node.lb, p, closest);
+        return points.toArray(new Point2D[0]);
+    }
+
+    // subtree of points[lo..hi], split by x if vertical and by y otherwise, covering region
+    private static Node build(Point2D[] points, int lo, int hi, boolean vertical, RectHV region) {
+        int median = select(points, lo, hi, lo + (hi - lo) / 2, vertical);
+        Node node = new Node(points[median], region, hi - lo + 1);
+        if (lo < median) node.lb = build(points, lo, median - 1, !vertical, lower(region, node.p, vertical));
+        if (median < hi) node.rt = build(points, median + 1, hi, !vertical, upper(region, node.p, vertical));
+        return node;
+    }
+
+    /**
+     * quickselect with a 3-way partition: rearranges points[lo..hi] so that the points before the returned index
+     * have a smaller coordinate than the k-th smallest and the others, starting with the returned index, are not
+     * smaller. The returned index is the first point equal to the k-th smallest, so it is at most k.
+     */
+    private static int select(Point2D[] points, int lo, int hi, int k, boolean vertical) {
+        while (true) {
+            double pivot = medianOfThree(coordinate(points[lo], vertical),
+                    coordinate(points[lo + (hi - lo) / 2], vertical), coordinate(points[hi], vertical));
+            int lt = lo;
+            int i = lo;
+            int gt = hi;
+            while (i <= gt) {
+                double c = coordinate(points[i], vertical);
+                if (c < pivot) swap(points, lt++, i++);
+                else if (c > pivot) swap(points, i, gt--);
+                else i++;
+            }
+            if (k < lt) hi = lt - 1;
+            else if (k > gt) lo = gt + 1;
+            else return lt;
         }
-        if (node.rt != null && closest.peek().distanceSquaredTo(p) > node.rt.rect.distanceSquaredTo(p)) {
+    }
 
-            traverseInOrderNearest(node.rt, p, closest);
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static double coordinate(Point2D p, boolean vertical) {
+        return vertical ? p.x() : p.y();
+    }
+
+    private static void swap(Point2D[] points, int i, int j) {
+        Point2D swap = points[i];
+        points[i] = points[j];
+        points[j] = swap;
+    }
+
+    // region of the left/bottom subtree of a node at p splitting region (the split clamped to the region)
+    private static RectHV lower(RectHV region, Point2D p, boolean vertical) {
+        if (vertical) {
+            double x = Math.max(region.xmin(), Math.min(region.xmax(), p.x()));
+            return new RectHV(region.xmin(), region.ymin(), x, region.ymax());
+        }
+        double y = Math.max(region.ymin(), Math.min(region.ymax(), p.y()));
+        return new RectHV(region.xmin(), region.ymin(), region.xmax(), y);
+    }
+
+    // region of the right/top subtree of a node at p splitting region (the split clamped to the region)
+    private static RectHV upper(RectHV region, Point2D p, boolean vertical) {
+        if (vertical) {
+            double x = Math.max(region.xmin(), Math.min(region.xmax(), p.x()));
+            return new RectHV(x, region.ymin(), region.xmax(), region.ymax());
+        }
+        double y = Math.max(region.ymin(), Math.min(region.ymax(), p.y()));
+        return new RectHV(region.xmin(), y, region.xmax(), region.ymax());
+    }
+
+    /**
+     * the nearest points found so far, at most capacity of them and none farther than the square root of limit: a max
+     * heap on the squared distance kept in two parallel arrays that grow as needed, so the farthest candidate is
+     * replaced in O(log k) without allocating.
+     */
+    private static final class Candidates {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final int capacity;
+        private final double limit;
+        private Point2D[] points;
+        private double[] distances;
+        private int n;
+
+        Candidates(int capacity, double limit) {
+            this.capacity = capacity;
+            this.limit = limit;
+            int initial = Math.min(capacity, INITIAL_CAPACITY);
+            this.points = new Point2D[initial];
+            this.distances = new double[initial];
+        }
+
+        // squared distance beyond which a point can not become a candidate
+        double bound() {
+            return n == capacity ? Math.min(limit, distances[0]) : limit;
+        }
+
+        void offer(Point2D p, double distance) {
+            if (distance > limit || capacity == 0) return;
+            if (n < capacity) {
+                if (n == points.length) {
+                    int length = Math.min(capacity, 2 * n);
+                    points = Arrays.copyOf(points, length);
+                    distances = Arrays.copyOf(distances, length);
+                }
+                points[n] = p;
+                distances[n] = distance;
+                swim(n++);
+            } else if (distance < distances[0]) {
+                points[0] = p;
+                distances[0] = distance;
+                sink(0, n);
+            }
         }
 
+        // the candidates nearest first, sorts the heap in place so it can not be offered to afterwards
+        List<Point2D> sorted() {
+            for (int last = n - 1; last > 0; last--) {
+                swap(0, last);
+                sink(0, last);
+            }
+            return Arrays.asList(points).subList(0, n);
+        }
+
+        private void swim(int i) {
+            while (i > 0 && distances[(i - 1) / 2] < distances[i]) {
+                swap(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        }
+
+        // restores the heap order below i among the first size candidates
+        private void sink(int i, int size) {
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+                if (distances[i] >= distances[child]) return;
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            Point2D point = points[i];
+            points[i] = points[j];
+            points[j] = point;
+            double distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+    }
+
+    // build of a subtree that forks the build of its larger subtrees
+    private static class BuildTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private final Point2D[] points;
+        private final int lo;
+        private final int hi;
+        private final boolean vertical;
+        private final RectHV region;
+
+        BuildTask(Point2D[] points, int lo, int hi, boolean vertical, RectHV region) {
+            this.points = points;
+            this.lo = lo;
+            this.hi = hi;
+            this.vertical = vertical;
+            this.region = region;
+        }
+
+        protected Node compute() {
+            if (hi - lo < PARALLEL_THRESHOLD) return build(points, lo, hi, vertical, region);
+            int median = select(points, lo, hi, lo + (hi - lo) / 2, vertical);
+            Node node = new Node(points[median], region, hi - lo + 1);
+            BuildTask left = lo < median
+                    ? new BuildTask(points, lo, median - 1, !vertical, lower(region, node.p, vertical)) : null;
+            BuildTask right = median < hi
+                    ? new BuildTask(points, median + 1, hi, !vertical, upper(region, node.p, vertical)) : null;
+            if (left != null) left.fork();
+            if (right != null) node.rt = right.compute();
+            if (left != null) node.lb = left.join();
+            return node;
+        }
     }
 
     public static void main(String[] args) {